@@ -0,0 +1,82 @@
+package com.lsoftware.jsonrpc.bench;
+
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcResponse;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Compares the databinding of a call through the {@link Json} helpers with {@link JsonRpcCodec}.
+ * Each operation runs the steps a call goes through: the processor binds the parsed request and
+ * encodes it for the registry, the registry decodes it and encodes the method result, the processor
+ * decodes the result and encodes the response.
+ *
+ * <p>Run with {@code ./gradlew codecBenchmark}, tunable with {@code -Piterations} and
+ * {@code -Prounds}.
+ */
+public class CodecBenchmark {
+
+  private static final int ITERATIONS = Integer.getInteger("iterations", 500_000);
+  private static final int ROUNDS = Integer.getInteger("rounds", 5);
+  private static final JsonObject REQUEST = new JsonArray("[{\"jsonrpc\": \"2.0\", \"id\": 1,"
+      + " \"method\": \"subtract\", \"params\": {\"subtrahend\": 1, \"minuend\": 5}}]")
+      .getJsonObject(0);
+  private static final JsonRpcResult RESULT =
+      new JsonRpcResult(new JsonObject().put("difference", 4).put("unit", "apples"));
+
+  // keeps the JIT from eliminating the work
+  private static int sink;
+
+  public static void main(String[] args) {
+    System.out.printf("%d iterations, best of %d rounds%n", ITERATIONS, ROUNDS);
+    // warm up the JIT before measuring
+    run(false, ITERATIONS);
+    run(true, ITERATIONS);
+
+    report("json", false);
+    report("codec", true);
+  }
+
+  private static void report(String name, boolean codec) {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < ROUNDS; i++) {
+      best = Math.min(best, run(codec, ITERATIONS));
+    }
+    System.out.printf("%-6s %7.0f ns/call   %9.0f calls/s%n", name, (double) best / ITERATIONS,
+        ITERATIONS / (best / 1e9));
+  }
+
+  private static long run(boolean codec, int iterations) {
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      sink += codec ? viaCodec() : viaJson();
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static int viaJson() {
+    final JsonRpcRequest request = REQUEST.mapTo(JsonRpcRequest.class);
+    final String dispatched = Json.encode(request);
+    final JsonRpcRequest received = Json.decodeValue(dispatched, JsonRpcRequest.class);
+    final String reply = Json.encode(RESULT);
+    final JsonRpcResult result = Json.decodeValue(reply, JsonRpcResult.class);
+    final JsonRpcResponse response = new JsonRpcSuccessResponse(received.getId(),
+        result.getResult());
+    return Json.encode(response).length();
+  }
+
+  private static int viaCodec() {
+    final JsonRpcRequest request = JsonRpcCodec.decodeRequest(REQUEST);
+    final String dispatched = JsonRpcCodec.encodeRequest(request);
+    final JsonRpcRequest received = JsonRpcCodec.decodeRequest(dispatched);
+    final String reply = JsonRpcCodec.encodeResult(RESULT);
+    final JsonRpcResult result = JsonRpcCodec.decodeResult(reply);
+    final JsonRpcResponse response = new JsonRpcSuccessResponse(received.getId(),
+        result.getResult());
+    return JsonRpcCodec.encodeResponse(response).length();
+  }
+}
@@ -0,0 +1,175 @@
+package com.lsoftware.jsonrpc.bench;
+
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
+
+import com.lsoftware.jsonrpc.JsonRpcMessageProcessor;
+import com.lsoftware.jsonrpc.JsonRpcMethodRegistry;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.JsonRpcShardKey;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares key-affinity sharding with the event bus round-robin for a stateful method. Each registry
+ * instance keeps an unsynchronized per-key cache; a miss pays for loading the key's state. With
+ * sharding each key is loaded by one instance only, with round-robin every instance ends up loading
+ * every key.
+ *
+ * <p>Run with {@code ./gradlew shardingBenchmark}. Tunable with {@code -Pregistries},
+ * {@code -Pkeys}, {@code -Pcalls} and {@code -Pconcurrency}.
+ */
+public class ShardingBenchmark {
+
+  private static final int REGISTRIES =
+      Integer.getInteger("registries", Runtime.getRuntime().availableProcessors());
+  private static final int KEYS = Integer.getInteger("keys", 10_000);
+  private static final int CALLS = Integer.getInteger("calls", 200_000);
+  private static final int CONCURRENCY = Integer.getInteger("concurrency", 256);
+  // cost of loading the state of a key on a cache miss
+  private static final long LOAD_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public static void main(String[] args) throws Exception {
+    System.out.printf("%d registries, %d keys, %d calls, %d in flight%n",
+        REGISTRIES, KEYS, CALLS, CONCURRENCY);
+
+    // warm up the JIT before measuring
+    new ShardingBenchmark().run(true, CALLS / 4);
+    new ShardingBenchmark().run(false, CALLS / 4);
+
+    report("round-robin", new ShardingBenchmark(), false);
+    report("sharded", new ShardingBenchmark(), true);
+  }
+
+  private static void report(String name, ShardingBenchmark benchmark, boolean sharded)
+      throws Exception {
+    final long nanos = benchmark.run(sharded, CALLS);
+    final long hits = benchmark.hits.sum();
+    final long total = hits + benchmark.misses.sum();
+    System.out.printf("%-12s %10.0f calls/s   hit rate %5.1f%%%n", name,
+        CALLS / (nanos / 1e9), 100.0 * hits / total);
+  }
+
+  private long run(boolean sharded, int calls) throws Exception {
+    final Vertx vertx = Vertx.vertx();
+    try {
+      List<Future> deployments = new ArrayList<>();
+      deployments.add(vertx.deployVerticle(new JsonRpcMessageProcessor()));
+      for (int i = 0; i < REGISTRIES; i++) {
+        JsonRpcMethodRegistry registry = new JsonRpcMethodRegistry();
+        registry.addMethod(new SessionMethod(sharded));
+        deployments.add(vertx.deployVerticle(registry));
+      }
+      await(CompositeFuture.all(deployments));
+      // registries announce their sharded methods asynchronously
+      Thread.sleep(200);
+
+      final long start = System.nanoTime();
+      await(drive(vertx, calls));
+      return System.nanoTime() - start;
+    } finally {
+      await(vertx.close());
+    }
+  }
+
+  /**
+   * Sends the calls, keeping a fixed number of them in flight.
+   */
+  private Future<Void> drive(Vertx vertx, int calls) {
+    final Promise<Void> done = Promise.promise();
+    final AtomicInteger sent = new AtomicInteger();
+    final AtomicInteger completed = new AtomicInteger();
+    final Random random = new Random(42);
+    final String[] requests = new String[calls];
+    for (int i = 0; i < calls; i++) {
+      requests[i] = "{\"jsonrpc\": \"2.0\", \"id\": " + i
+          + ", \"method\": \"session\", \"params\": [\"key-" + random.nextInt(KEYS) + "\"]}";
+    }
+
+    vertx.runOnContext(v -> {
+      for (int i = 0; i < Math.min(CONCURRENCY, calls); i++) {
+        sendNext(vertx, requests, sent, completed, done);
+      }
+    });
+    return done.future();
+  }
+
+  private void sendNext(Vertx vertx, String[] requests, AtomicInteger sent,
+      AtomicInteger completed, Promise<Void> done) {
+    final int next = sent.getAndIncrement();
+    if (next >= requests.length) {
+      return;
+    }
+    vertx.eventBus().request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, requests[next], ar -> {
+      if (ar.failed()) {
+        done.tryFail(ar.cause());
+        return;
+      }
+      if (completed.incrementAndGet() == requests.length) {
+        done.tryComplete();
+      } else {
+        sendNext(vertx, requests, sent, completed, done);
+      }
+    });
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.MINUTES);
+  }
+
+  private class SessionMethod implements JsonRpcMethod {
+
+    private final boolean sharded;
+    // only ever touched by the registry instance owning this method object
+    private final Map<Object, long[]> sessions = new HashMap<>();
+
+    private SessionMethod(boolean sharded) {
+      this.sharded = sharded;
+    }
+
+    @Override
+    public String name() {
+      return "session";
+    }
+
+    @Override
+    public JsonRpcShardKey shardKey() {
+      return sharded ? JsonRpcShardKey.param(0) : null;
+    }
+
+    @Override
+    public JsonRpcResult process(List<?> params) {
+      long[] session = sessions.get(params.get(0));
+      if (session == null) {
+        misses.increment();
+        session = new long[] {load()};
+        sessions.put(params.get(0), session);
+      } else {
+        hits.increment();
+      }
+      return new JsonRpcResult(++session[0]);
+    }
+
+    private long load() {
+      final long deadline = System.nanoTime() + LOAD_NANOS;
+      long spins = 0;
+      while (System.nanoTime() < deadline) {
+        spins++;
+      }
+      return spins & 0xff;
+    }
+  }
+}
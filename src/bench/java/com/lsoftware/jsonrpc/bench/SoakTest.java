@@ -0,0 +1,472 @@
+package com.lsoftware.jsonrpc.bench;
+
+import com.lsoftware.jsonrpc.JsonRpcMessageProcessor;
+import com.lsoftware.jsonrpc.JsonRpcMethodRegistry;
+import com.lsoftware.jsonrpc.JsonRpcProcessorOptions;
+import com.lsoftware.jsonrpc.JsonRpcTracingOptions;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcTopics;
+import com.lsoftware.jsonrpc.http.HttpJsonRpcServer;
+import com.lsoftware.jsonrpc.methods.MathMethodsGroup;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import com.lsoftware.jsonrpc.websockets.WebSocketJsonRpcServer;
+import io.netty.util.internal.PlatformDependent;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.metrics.MetricsOptions;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.core.spi.metrics.EventBusMetrics;
+import io.vertx.core.spi.metrics.HttpServerMetrics;
+import io.vertx.core.spi.metrics.VertxMetrics;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs the HTTP and WebSocket servers under mixed traffic and checks that they stay stable over
+ * time. The traffic includes valid calls and batches, malformed and invalid messages, unknown
+ * methods, batches at and over the maximum length, calls that time out, and WebSocket clients that
+ * subscribe to a topic and disconnect with calls still in flight.
+ *
+ * <p>Heap after GC, direct memory, event-bus handlers (reply handlers apart), calls in flight and
+ * open WebSockets are sampled periodically. The run fails if one of them keeps growing: the lowest
+ * value of the second half of the run (after a warm-up) is above the highest value of the first
+ * half, by more than the slack of the resource. Once the traffic stops, the counters must also come
+ * back to where they were before it started.
+ *
+ * <p>Run with {@code ./gradlew soakTest}. Tunable with {@code -Pduration} and
+ * {@code -PsampleInterval} (seconds), {@code -PhttpClients} and {@code -PwebSocketClients}.
+ */
+public class SoakTest {
+
+  private static final long DURATION_S = Long.getLong("duration", 600);
+  private static final long SAMPLE_INTERVAL_S = Long.getLong("sampleInterval", 10);
+  private static final int HTTP_CLIENTS = Integer.getInteger("httpClients", 16);
+  private static final int WEBSOCKET_CLIENTS = Integer.getInteger("webSocketClients", 8);
+  // calls to this method are never answered, they time out after the event bus default of 30 s
+  private static final String STALL_METHOD = "stall";
+  private static final long STALL_INTERVAL_MS = 200;
+  // the JIT, the buffer pools and the calls that time out settle during the first samples
+  private static final double WARM_UP_FRACTION = 0.2;
+  private static final long QUIESCE_TIMEOUT_MS = 45_000;
+  private static final long MB = 1024 * 1024;
+
+  private static final List<Resource> RESOURCES = new ArrayList<>();
+
+  static {
+    RESOURCES.add(new Resource("heap", "MB", 16 * MB, MB, s -> s.heapAfterGc));
+    // the pooled allocator grows a chunk at a time
+    RESOURCES.add(new Resource("direct", "MB", 32 * MB, MB, s -> s.directMemory));
+    RESOURCES.add(new Resource("handlers", "", 64, 1, s -> s.handlers));
+    RESOURCES.add(new Resource("replyHandlers", "", 64, 1, s -> s.replyHandlers));
+    RESOURCES.add(new Resource("inFlight", "", 64, 1, s -> s.inFlight));
+    RESOURCES.add(new Resource("webSockets", "", WEBSOCKET_CLIENTS, 1, s -> s.webSockets));
+  }
+
+  private final ServerMetrics serverMetrics = new ServerMetrics();
+  private final Vertx server = Vertx.vertx(new VertxOptions().setMetricsOptions(
+      new MetricsOptions().setEnabled(true).setFactory(options -> serverMetrics)));
+  private final Vertx clients = Vertx.vertx();
+  private final AtomicBoolean running = new AtomicBoolean(true);
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  public static void main(String[] args) throws Exception {
+    System.out.printf("%d s, %d HTTP clients, %d WebSocket clients, sampling every %d s%n",
+        DURATION_S, HTTP_CLIENTS, WEBSOCKET_CLIENTS, SAMPLE_INTERVAL_S);
+    final SoakTest soak = new SoakTest();
+    final boolean passed;
+    try {
+      passed = soak.run();
+    } finally {
+      soak.clients.close();
+      soak.server.close();
+    }
+    System.out.println(passed ? "PASSED" : "FAILED");
+    System.exit(passed ? 0 : 1);
+  }
+
+  private boolean run() throws Exception {
+    deploy();
+    final Sample baseline = sample();
+    System.out.println(Sample.HEADER);
+    System.out.println(baseline);
+
+    for (int i = 0; i < HTTP_CLIENTS; i++) {
+      httpClient(clients.createHttpClient(new HttpClientOptions().setMaxPoolSize(1)),
+          new Random(i));
+    }
+    for (int i = 0; i < WEBSOCKET_CLIENTS; i++) {
+      webSocketClient(clients.createHttpClient(), new Random(-i - 1));
+    }
+    stallingClient(clients.createHttpClient(new HttpClientOptions().setMaxPoolSize(1024)));
+
+    final List<Sample> samples = new ArrayList<>();
+    final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_S);
+    while (System.nanoTime() < end) {
+      Thread.sleep(TimeUnit.SECONDS.toMillis(SAMPLE_INTERVAL_S));
+      final Sample sample = sample();
+      samples.add(sample);
+      System.out.println(sample);
+    }
+
+    running.set(false);
+    final Sample quiesced = quiesce(baseline);
+    System.out.println(quiesced);
+    System.out.printf("%d requests, %d failed%n", requests.sum(), failures.sum());
+    return checkGrowth(samples) & checkQuiesced(baseline, quiesced);
+  }
+
+  private void deploy() throws Exception {
+    final JsonRpcMethodRegistry registry = new JsonRpcMethodRegistry();
+    registry.addMethodGroup(new MathMethodsGroup());
+    server.eventBus().consumer(JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + STALL_METHOD,
+        msg -> { });
+    CompositeFuture.all(
+        // the calls that time out would flood the slow request log
+        server.deployVerticle(new JsonRpcMessageProcessor(new JsonRpcProcessorOptions()
+            .setTracingOptions(new JsonRpcTracingOptions().setSlowRequestThresholdMs(0)))),
+        server.deployVerticle(registry),
+        server.deployVerticle(new HttpJsonRpcServer()),
+        server.deployVerticle(new WebSocketJsonRpcServer()))
+        .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+    server.setPeriodic(100, t -> JsonRpcTopics.publish(server.eventBus(), "ticks",
+        new JsonObject().put("time", System.currentTimeMillis())));
+  }
+
+  /**
+   * Sends one request after another until the run is over.
+   */
+  private void httpClient(HttpClient client, Random random) {
+    if (!running.get()) {
+      client.close();
+      return;
+    }
+    requests.increment();
+    client.request(HttpMethod.POST, 8080, "localhost", "/")
+        .compose(request -> request.send(Traffic.httpRequest(random)))
+        .compose(response -> response.body())
+        .onComplete(ar -> {
+          if (ar.failed()) {
+            failures.increment();
+          }
+          httpClient(client, random);
+        });
+  }
+
+  /**
+   * Keeps sending calls that time out, without waiting for their answer.
+   */
+  private void stallingClient(HttpClient client) {
+    final Random random = new Random();
+    clients.setPeriodic(STALL_INTERVAL_MS, timer -> {
+      if (!running.get()) {
+        clients.cancelTimer(timer);
+        return;
+      }
+      requests.increment();
+      client.request(HttpMethod.POST, 8080, "localhost", "/")
+          .compose(request -> request.send(Traffic.call(random, STALL_METHOD)))
+          .compose(response -> response.body())
+          .onFailure(e -> failures.increment());
+    });
+  }
+
+  /**
+   * Connects, subscribes, sends a burst of calls and disconnects after some of the responses, with
+   * the others still in flight. Then starts over until the run is over.
+   */
+  private void webSocketClient(HttpClient client, Random random) {
+    if (!running.get()) {
+      client.close();
+      return;
+    }
+    client.webSocket(8081, "localhost", "/").onComplete(ar -> {
+      if (ar.failed()) {
+        failures.increment();
+        clients.setTimer(100, t -> webSocketClient(client, random));
+        return;
+      }
+      final WebSocket websocket = ar.result();
+      final int calls = 1 + random.nextInt(50);
+      final int closeAfter = random.nextInt(calls + 1);
+      final int[] received = {0};
+      websocket.closeHandler(v -> webSocketClient(client, random));
+      websocket.textMessageHandler(message -> {
+        // the subscription and its notifications count as well, it doesn't matter
+        if (++received[0] == closeAfter) {
+          websocket.close();
+        }
+      });
+      websocket.writeTextMessage("{\"jsonrpc\": \"2.0\", \"id\": \"s\","
+          + " \"method\": \"rpc.subscribe\", \"params\": [\"ticks\"]}");
+      for (int i = 0; i < calls; i++) {
+        requests.increment();
+        websocket.writeTextMessage(Traffic.webSocketMessage(random));
+      }
+      if (closeAfter == 0) {
+        websocket.close();
+      }
+    });
+  }
+
+  /**
+   * Waits for the calls that are still in flight to be answered or to time out.
+   */
+  private Sample quiesce(Sample baseline) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QUIESCE_TIMEOUT_MS);
+    Sample sample = sample();
+    while (System.nanoTime() < deadline && !(sample.inFlight == 0 && sample.webSockets == 0
+        && sample.handlers <= baseline.handlers && sample.replyHandlers == 0)) {
+      Thread.sleep(1000);
+      sample = sample();
+    }
+    return sample;
+  }
+
+  private boolean checkGrowth(List<Sample> samples) {
+    final List<Sample> measured =
+        samples.subList((int) (samples.size() * WARM_UP_FRACTION), samples.size());
+    if (measured.size() < 4) {
+      System.out.println("Too few samples to tell whether anything grows, run for longer");
+      return false;
+    }
+    final List<Sample> first = measured.subList(0, measured.size() / 2);
+    final List<Sample> second = measured.subList(measured.size() / 2, measured.size());
+    boolean passed = true;
+    for (Resource resource : RESOURCES) {
+      final long firstMax = first.stream().mapToLong(resource.value).max().getAsLong();
+      final long secondMin = second.stream().mapToLong(resource.value).min().getAsLong();
+      if (secondMin > firstMax + resource.slack) {
+        System.out.printf("%s keeps growing: %s at least, up from %s at most%n", resource.name,
+            resource.format(secondMin), resource.format(firstMax));
+        passed = false;
+      }
+    }
+    return passed;
+  }
+
+  private boolean checkQuiesced(Sample baseline, Sample quiesced) {
+    boolean passed = true;
+    if (quiesced.inFlight != 0) {
+      System.out.printf("%d calls still in flight once the traffic stopped%n", quiesced.inFlight);
+      passed = false;
+    }
+    if (quiesced.webSockets != 0) {
+      System.out.printf("%d WebSockets still open once the traffic stopped%n", quiesced.webSockets);
+      passed = false;
+    }
+    if (quiesced.handlers > baseline.handlers) {
+      System.out.printf("%d event-bus handlers left over once the traffic stopped%n",
+          quiesced.handlers - baseline.handlers);
+      passed = false;
+    }
+    if (quiesced.replyHandlers != 0) {
+      System.out.printf("%d reply handlers left over once the traffic stopped%n",
+          quiesced.replyHandlers);
+      passed = false;
+    }
+    return passed;
+  }
+
+  private Sample sample() {
+    System.gc();
+    final JsonRpcMetrics metrics = JsonRpcMetrics.get(server);
+    return new Sample(
+        ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+        directMemory(),
+        serverMetrics.handlers.sum(),
+        serverMetrics.replyHandlers.sum(),
+        metrics.processorInFlight().sum() + metrics.registryInFlight().sum(),
+        serverMetrics.webSockets.sum());
+  }
+
+  /**
+   * Direct buffers allocated through the JDK, and by Netty without a cleaner when it can.
+   */
+  private static long directMemory() {
+    long used = Math.max(0, PlatformDependent.usedDirectMemory());
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        used += pool.getMemoryUsed();
+      }
+    }
+    return used;
+  }
+
+  /**
+   * The messages sent by the clients.
+   */
+  private static class Traffic {
+
+    private static final String CALL = "{\"jsonrpc\": \"2.0\", \"id\": %d, \"method\": \"%s\","
+        + " \"params\": [%d, %d]}";
+    private static final int MAX_BATCH_LENGTH = 1000;
+
+    static String httpRequest(Random random) {
+      final int kind = random.nextInt(1000);
+      if (kind < 600) {
+        return call(random, "add");
+      } else if (kind < 700) {
+        return batch(random, 2 + random.nextInt(8));
+      } else if (kind < 780) {
+        return malformed(random);
+      } else if (kind < 860) {
+        return "{\"jsonrpc\": \"2.0\", \"id\": 1}";
+      } else if (kind < 940) {
+        return call(random, "missing");
+      } else if (kind < 980) {
+        return batch(random, MAX_BATCH_LENGTH);
+      }
+      return batch(random, MAX_BATCH_LENGTH + 1);
+    }
+
+    static String webSocketMessage(Random random) {
+      final int kind = random.nextInt(1000);
+      if (kind < 700) {
+        return call(random, "subtract");
+      } else if (kind < 800) {
+        return batch(random, 2 + random.nextInt(8));
+      } else if (kind < 880) {
+        return malformed(random);
+      } else if (kind < 960) {
+        return call(random, "missing");
+      } else if (kind < 990) {
+        // larger than a frame, the client fragments it
+        return batch(random, MAX_BATCH_LENGTH);
+      }
+      return call(random, STALL_METHOD);
+    }
+
+    private static String call(Random random, String method) {
+      return String.format(CALL, random.nextInt(), method, random.nextInt(100),
+          random.nextInt(100));
+    }
+
+    private static String batch(Random random, int length) {
+      final StringBuilder batch = new StringBuilder("[");
+      for (int i = 0; i < length; i++) {
+        batch.append(i == 0 ? "" : ", ").append(call(random, i % 2 == 0 ? "add" : "subtract"));
+      }
+      return batch.append(']').toString();
+    }
+
+    private static String malformed(Random random) {
+      final String call = call(random, "add");
+      return call.substring(0, random.nextInt(call.length()));
+    }
+  }
+
+  /**
+   * Counts the event-bus handlers and the WebSockets of the server. The reply handlers, which come
+   * and go with the requests, are counted apart.
+   */
+  private static class ServerMetrics implements VertxMetrics {
+
+    private final LongAdder handlers = new LongAdder();
+    private final LongAdder replyHandlers = new LongAdder();
+    private final LongAdder webSockets = new LongAdder();
+
+    @Override
+    public EventBusMetrics<?> createEventBusMetrics() {
+      return new EventBusMetrics<LongAdder>() {
+        @Override
+        public LongAdder handlerRegistered(String address, String repliedAddress) {
+          final LongAdder count = repliedAddress == null ? handlers : replyHandlers;
+          count.increment();
+          return count;
+        }
+
+        @Override
+        public void handlerUnregistered(LongAdder count) {
+          count.decrement();
+        }
+      };
+    }
+
+    @Override
+    public HttpServerMetrics<?, ?, ?> createHttpServerMetrics(HttpServerOptions options,
+        SocketAddress localAddress) {
+      return new HttpServerMetrics<Object, Object, Object>() {
+        @Override
+        public Object connected(Object socketMetric, Object requestMetric,
+            ServerWebSocket serverWebSocket) {
+          webSockets.increment();
+          return serverWebSocket;
+        }
+
+        @Override
+        public void disconnected(Object serverWebSocketMetric) {
+          webSockets.decrement();
+        }
+      };
+    }
+  }
+
+  private static class Resource {
+
+    private final String name;
+    private final String unit;
+    private final long slack;
+    private final long scale;
+    private final ToLongFunction<Sample> value;
+
+    private Resource(String name, String unit, long slack, long scale,
+        ToLongFunction<Sample> value) {
+      this.name = name;
+      this.unit = unit;
+      this.slack = slack;
+      this.scale = scale;
+      this.value = value;
+    }
+
+    private String format(long value) {
+      return value / scale + unit;
+    }
+  }
+
+  private static class Sample {
+
+    private static final String HEADER = String.format("%-10s %8s %8s %8s %8s %8s %10s",
+        "elapsed", "heap", "direct", "handlers", "replies", "inFlight", "webSockets");
+    private static final long START = System.nanoTime();
+
+    private final long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - START);
+    private final long heapAfterGc;
+    private final long directMemory;
+    private final long handlers;
+    private final long replyHandlers;
+    private final long inFlight;
+    private final long webSockets;
+
+    private Sample(long heapAfterGc, long directMemory, long handlers, long replyHandlers,
+        long inFlight, long webSockets) {
+      this.heapAfterGc = heapAfterGc;
+      this.directMemory = directMemory;
+      this.handlers = handlers;
+      this.replyHandlers = replyHandlers;
+      this.inFlight = inFlight;
+      this.webSockets = webSockets;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-10s %6dMB %6dMB %8d %8d %8d %10d", elapsedSeconds + "s",
+          heapAfterGc / MB, directMemory / MB, handlers, replyHandlers, inFlight, webSockets);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+package com.lsoftware.jsonrpc.bench;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the service takes, from the launch of its JVM, to log "Startup complete!" and to
+ * answer its first request, with and without the AppCDS archive. In training mode it instead runs
+ * the service once with {@code -XX:ArchiveClassesAtExit} to dump the archive.
+ *
+ * <p>Run with {@code ./gradlew startupBenchmark}, tunable with {@code -Pruns}. The archive alone is
+ * built by {@code ./gradlew appCdsArchive}.
+ */
+public class StartupBenchmark {
+
+  private static final File JAR = new File(System.getProperty("jar"));
+  private static final File ARCHIVE = new File(System.getProperty("archive"));
+  private static final int RUNS = Integer.getInteger("runs", 5);
+  private static final String ENDPOINT = "http://localhost:8080/";
+  private static final String REQUEST =
+      "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"add\", \"params\": [2, 3]}";
+  private static final String BATCH = "[" + REQUEST + ","
+      + "{\"jsonrpc\": \"2.0\", \"id\": 2, \"method\": \"subtract\","
+      + " \"params\": {\"subtrahend\": 1, \"minuend\": 5}}]";
+  private static final long TIMEOUT_MS = 60_000;
+
+  public static void main(String[] args) throws Exception {
+    if (Boolean.getBoolean("train")) {
+      train();
+      return;
+    }
+
+    // the first launch also warms up the page cache, it isn't measured
+    launch(Collections.emptyList()).stop();
+
+    report("default", Collections.emptyList());
+    if (ARCHIVE.isFile()) {
+      report("appcds", Collections.singletonList("-XX:SharedArchiveFile=" + ARCHIVE));
+    } else {
+      System.out.println("No AppCDS archive at " + ARCHIVE + ", run appCdsArchive first");
+    }
+  }
+
+  /**
+   * Runs the service once with the usual requests so that the archive covers the classes they load.
+   */
+  private static void train() throws Exception {
+    ARCHIVE.delete();
+    final Launch launch = launch(Collections.singletonList("-XX:ArchiveClassesAtExit=" + ARCHIVE));
+    for (int i = 0; i < 100; i++) {
+      post(REQUEST);
+      post(BATCH);
+    }
+    launch.stop();
+
+    if (!ARCHIVE.isFile()) {
+      throw new IllegalStateException("The JVM didn't dump an AppCDS archive to " + ARCHIVE);
+    }
+    System.out.printf("AppCDS archive written to %s (%d KB)%n", ARCHIVE, ARCHIVE.length() / 1024);
+  }
+
+  private static void report(String name, List<String> jvmArgs) throws Exception {
+    final long[] startup = new long[RUNS];
+    final long[] firstResponse = new long[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      final Launch launch = launch(jvmArgs);
+      startup[i] = launch.startupMs;
+      firstResponse[i] = launch.firstResponseMs;
+      launch.stop();
+    }
+    Arrays.sort(startup);
+    Arrays.sort(firstResponse);
+    System.out.printf("%-8s startup %5d ms (min %5d)   first response %5d ms (min %5d)%n", name,
+        startup[RUNS / 2], startup[0], firstResponse[RUNS / 2], firstResponse[0]);
+  }
+
+  private static Launch launch(List<String> jvmArgs) throws Exception {
+    final List<String> command = new ArrayList<>();
+    command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+    command.addAll(jvmArgs);
+    command.add("-jar");
+    command.add(JAR.getPath());
+
+    final long start = System.nanoTime();
+    final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    final CompletableFuture<Long> startupComplete = new CompletableFuture<>();
+    final Thread output = new Thread(() -> readOutput(process.getInputStream(), start,
+        startupComplete));
+    output.setDaemon(true);
+    output.start();
+
+    try {
+      final long deadline = start + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+      while (!respondsTo(REQUEST)) {
+        if (System.nanoTime() > deadline || !process.isAlive()) {
+          throw new IllegalStateException("The service didn't answer " + REQUEST);
+        }
+        Thread.sleep(1);
+      }
+      final long firstResponseMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      return new Launch(process, startupComplete.get(TIMEOUT_MS, TimeUnit.MILLISECONDS),
+          firstResponseMs);
+    } catch (Exception e) {
+      process.destroyForcibly();
+      throw e;
+    }
+  }
+
+  private static void readOutput(InputStream stream, long start, CompletableFuture<Long> startup) {
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!startup.isDone() && line.contains("Startup complete!")) {
+          startup.complete(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+      }
+    } catch (IOException e) {
+      startup.completeExceptionally(e);
+    }
+  }
+
+  private static boolean respondsTo(String request) {
+    try {
+      return post(request).contains("\"result\"");
+    } catch (IOException e) {
+      // not listening yet
+      return false;
+    }
+  }
+
+  private static String post(String request) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(ENDPOINT).openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    try (OutputStream out = connection.getOutputStream()) {
+      out.write(request.getBytes(StandardCharsets.UTF_8));
+    }
+    try (InputStream in = connection.getInputStream()) {
+      final ByteArrayOutputStream body = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        body.write(buffer, 0, read);
+      }
+      return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static class Launch {
+
+    private final Process process;
+    private final long startupMs;
+    private final long firstResponseMs;
+
+    private Launch(Process process, long startupMs, long firstResponseMs) {
+      this.process = process;
+      this.startupMs = startupMs;
+      this.firstResponseMs = firstResponseMs;
+    }
+
+    /**
+     * Stops the service the way an orchestrator would, with a SIGTERM.
+     */
+    private void stop() throws InterruptedException {
+      process.destroy();
+      if (!process.waitFor(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        process.destroyForcibly().waitFor();
+      }
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package com.lsoftware.jsonrpc.bench;
+
+import com.lsoftware.jsonrpc.JsonRpcMessageProcessor;
+import com.lsoftware.jsonrpc.JsonRpcMethodRegistry;
+import com.lsoftware.jsonrpc.methods.MathMethodsGroup;
+import com.lsoftware.jsonrpc.websockets.WebSocketJsonRpcServer;
+import com.lsoftware.jsonrpc.websockets.WebSocketSubscriptionOptions;
+import com.lsoftware.jsonrpc.websockets.WebSocketWriteOptions;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.WebSocket;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares WebSocket write coalescing with a write and flush per response, over loopback. Two loads
+ * are measured: pipelined clients keeping many calls in flight, which is where coalescing pays off,
+ * and a single client waiting for each response, to check that latency at low load doesn't suffer.
+ *
+ * <p>The server runs in its own JVM so that its write syscalls can be counted from
+ * {@code /proc/<pid>/io} (Linux only). The count includes the wake-ups of event loops handing calls
+ * to each other through the event bus, not only the socket writes.
+ *
+ * <p>Run with {@code ./gradlew webSocketBenchmark}. Tunable with {@code -Pconnections},
+ * {@code -Pwindow} (calls in flight per connection), {@code -Pcalls} and {@code -Pinstances}
+ * (processor and registry instances in the server).
+ */
+public class WebSocketBenchmark {
+
+  private static final int CONNECTIONS = Integer.getInteger("connections", 4);
+  private static final int WINDOW = Integer.getInteger("window", 64);
+  private static final int CALLS = Integer.getInteger("calls", 200_000);
+  private static final int INSTANCES = Integer.getInteger("instances", 4);
+  private static final String REQUEST =
+      "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"add\", \"params\": [2, 3]}";
+  private static final String READY = "ready ";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length == 2 && args[0].equals("server")) {
+      serve(Boolean.parseBoolean(args[1]));
+      return;
+    }
+
+    System.out.printf("%d connections x %d in flight, %d calls%n", CONNECTIONS, WINDOW, CALLS);
+    final Vertx vertx = Vertx.vertx();
+    try {
+      for (boolean coalesce : new boolean[] {false, true}) {
+        final Process server = launchServer(coalesce);
+        try {
+          final long pid = awaitReady(server);
+          final String name = coalesce ? "coalesced" : "flush-each";
+          // warm up the JIT of both JVMs before measuring
+          run(vertx, pid, CONNECTIONS, WINDOW, CALLS / 2);
+          report(name + " pipelined", run(vertx, pid, CONNECTIONS, WINDOW, CALLS));
+          report(name + " ping-pong", run(vertx, pid, 1, 1, CALLS / 10));
+        } finally {
+          server.destroy();
+          server.waitFor();
+        }
+      }
+    } finally {
+      vertx.close();
+    }
+  }
+
+  private static void serve(boolean coalesce) {
+    final Vertx vertx = Vertx.vertx();
+    // enough processors and registries for the WebSocket event loops to be the busy ones
+    final DeploymentOptions scaled = new DeploymentOptions().setInstances(INSTANCES);
+    CompositeFuture.all(
+        vertx.deployVerticle(JsonRpcMessageProcessor::new, scaled),
+        vertx.deployVerticle(() -> {
+          final JsonRpcMethodRegistry registry = new JsonRpcMethodRegistry();
+          registry.addMethodGroup(new MathMethodsGroup());
+          return registry;
+        }, scaled),
+        vertx.deployVerticle(new WebSocketJsonRpcServer(new WebSocketSubscriptionOptions(),
+            new WebSocketWriteOptions().setCoalesceWrites(coalesce))))
+        .onSuccess(v -> System.out.println(
+            READY + ManagementFactory.getRuntimeMXBean().getName().split("@")[0]))
+        .onFailure(e -> {
+          e.printStackTrace();
+          System.exit(1);
+        });
+  }
+
+  private static Process launchServer(boolean coalesce) throws IOException {
+    final List<String> command = new ArrayList<>(Arrays.asList(
+        new File(System.getProperty("java.home"), "bin/java").getPath(),
+        "-cp", System.getProperty("java.class.path"),
+        "-Dinstances=" + INSTANCES, WebSocketBenchmark.class.getName(),
+        "server", Boolean.toString(coalesce)));
+    return new ProcessBuilder(command).redirectErrorStream(true).start();
+  }
+
+  private static long awaitReady(Process server) throws IOException {
+    final BufferedReader output = new BufferedReader(
+        new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8));
+    String line;
+    while ((line = output.readLine()) != null) {
+      if (line.startsWith(READY)) {
+        final long pid = Long.parseLong(line.substring(READY.length()).trim());
+        // keep draining the output so that the server never blocks on it
+        final Thread drain = new Thread(() -> output.lines().forEach(l -> { }));
+        drain.setDaemon(true);
+        drain.start();
+        return pid;
+      }
+    }
+    throw new IllegalStateException("The server exited before it was ready");
+  }
+
+  private static Result run(Vertx vertx, long pid, int connections, int window, int calls)
+      throws Exception {
+    final HttpClient client = vertx.createHttpClient();
+    final List<WebSocket> websockets = new ArrayList<>();
+    for (int i = 0; i < connections; i++) {
+      websockets.add(client.webSocket(8081, "localhost", "/")
+          .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS));
+    }
+
+    final long syscallsBefore = writeSyscalls(pid);
+    final long start = System.nanoTime();
+    final List<Future> done = new ArrayList<>();
+    for (WebSocket websocket : websockets) {
+      done.add(pipeline(websocket, window, calls / connections));
+    }
+    CompositeFuture.all(done).toCompletionStage().toCompletableFuture()
+        .get(5, TimeUnit.MINUTES);
+    final long nanos = System.nanoTime() - start;
+    final long syscalls = writeSyscalls(pid) - syscallsBefore;
+
+    client.close();
+    final int answered = calls / connections * connections;
+    return new Result(answered, nanos, syscalls);
+  }
+
+  /**
+   * Keeps {@code window} calls in flight on the connection until {@code calls} have been answered.
+   */
+  private static Future<Void> pipeline(WebSocket websocket, int window, int calls) {
+    final Promise<Void> done = Promise.promise();
+    final int[] sent = {0};
+    final int[] answered = {0};
+    websocket.textMessageHandler(response -> {
+      if (++answered[0] == calls) {
+        done.complete();
+      } else if (sent[0] < calls) {
+        sent[0]++;
+        websocket.writeTextMessage(REQUEST);
+      }
+    });
+    for (; sent[0] < Math.min(window, calls); sent[0]++) {
+      websocket.writeTextMessage(REQUEST);
+    }
+    return done.future();
+  }
+
+  /**
+   * Write syscalls made so far by the process, or -1 when it can't be told.
+   */
+  private static long writeSyscalls(long pid) {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(pid), "io"))) {
+        if (line.startsWith("syscw:")) {
+          return Long.parseLong(line.substring("syscw:".length()).trim());
+        }
+      }
+    } catch (IOException e) {
+      // not on Linux
+    }
+    return -1;
+  }
+
+  private static void report(String name, Result result) {
+    final String syscalls = result.syscalls < 0 ? "n/a"
+        : String.format("%.2f", (double) result.syscalls / result.calls);
+    System.out.printf("%-22s %8.0f calls/s %7.1f us/call %s write syscalls/call%n", name,
+        result.calls / (result.nanos / 1e9),
+        TimeUnit.NANOSECONDS.toMicros(result.nanos) / (double) result.calls, syscalls);
+  }
+
+  private static class Result {
+
+    private final int calls;
+    private final long nanos;
+    private final long syscalls;
+
+    private Result(int calls, long nanos, long syscalls) {
+      this.calls = calls;
+      this.nanos = nanos;
+      this.syscalls = syscalls;
+    }
+  }
+}
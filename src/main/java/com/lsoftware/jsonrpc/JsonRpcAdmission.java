@@ -0,0 +1,66 @@
+package com.lsoftware.jsonrpc;
+
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponse;
+
+/**
+ * Check run on each parsed request before it is dispatched. A rejected request is answered with the
+ * returned error and never reaches the method; admitted requests are reported back once answered.
+ */
+@FunctionalInterface
+interface JsonRpcAdmission {
+
+  JsonRpcAdmission ADMIT_ALL = request -> null;
+
+  /**
+   * Returns the error response for a rejected request, or null if the request can be dispatched.
+   */
+  JsonRpcErrorResponse check(JsonRpcRequest request);
+
+  /**
+   * Called with the response of an admitted request and the time it took to dispatch it.
+   */
+  default void completed(JsonRpcRequest request, Object response, long durationNanos) {
+  }
+
+  /**
+   * Called when a request this check admitted is rejected by a later one, and will never complete.
+   */
+  default void cancelled(JsonRpcRequest request) {
+  }
+
+  /**
+   * Admission that runs this check, then the given one on the requests this one admits. Checks that
+   * consume a permit should come last, so that a request rejected by an earlier check doesn't use
+   * one up.
+   */
+  default JsonRpcAdmission andThen(JsonRpcAdmission next) {
+    final JsonRpcAdmission first = this;
+    return new JsonRpcAdmission() {
+      @Override
+      public JsonRpcErrorResponse check(JsonRpcRequest request) {
+        final JsonRpcErrorResponse rejection = first.check(request);
+        if (rejection != null) {
+          return rejection;
+        }
+        final JsonRpcErrorResponse nextRejection = next.check(request);
+        if (nextRejection != null) {
+          first.cancelled(request);
+        }
+        return nextRejection;
+      }
+
+      @Override
+      public void cancelled(JsonRpcRequest request) {
+        first.cancelled(request);
+        next.cancelled(request);
+      }
+
+      @Override
+      public void completed(JsonRpcRequest request, Object response, long durationNanos) {
+        first.completed(request, response, durationNanos);
+        next.completed(request, response, durationNanos);
+      }
+    };
+  }
+}
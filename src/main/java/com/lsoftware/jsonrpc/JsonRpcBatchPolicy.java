@@ -0,0 +1,74 @@
+package com.lsoftware.jsonrpc;
+
+/**
+ * Limits applied by the {@link JsonRpcMessageProcessor} when executing batch requests.
+ */
+public class JsonRpcBatchPolicy {
+
+  public static final int DEFAULT_MAX_BATCH_LENGTH = 1000;
+  public static final int DEFAULT_MAX_BATCH_CONCURRENCY = 64;
+  public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+  private int maxBatchLength = DEFAULT_MAX_BATCH_LENGTH;
+  private int maxBatchConcurrency = DEFAULT_MAX_BATCH_CONCURRENCY;
+  private boolean fairShare = false;
+  private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+  public int getMaxBatchLength() {
+    return maxBatchLength;
+  }
+
+  /**
+   * Batches with more elements than this are rejected as a whole, without dispatching any call.
+   */
+  public JsonRpcBatchPolicy setMaxBatchLength(int maxBatchLength) {
+    this.maxBatchLength = requirePositive(maxBatchLength, "maxBatchLength");
+    return this;
+  }
+
+  public int getMaxBatchConcurrency() {
+    return maxBatchConcurrency;
+  }
+
+  /**
+   * Maximum number of dispatches a single batch may have in flight. The next call of the batch is
+   * dispatched as soon as one of the in-flight calls completes.
+   */
+  public JsonRpcBatchPolicy setMaxBatchConcurrency(int maxBatchConcurrency) {
+    this.maxBatchConcurrency = requirePositive(maxBatchConcurrency, "maxBatchConcurrency");
+    return this;
+  }
+
+  public boolean isFairShare() {
+    return fairShare;
+  }
+
+  /**
+   * When enabled, dispatches from all connections share a pool of {@link #getMaxInFlight()} slots
+   * that is handed out round-robin between connections, so a connection sending big batches can't
+   * delay the requests of the others.
+   */
+  public JsonRpcBatchPolicy setFairShare(boolean fairShare) {
+    this.fairShare = fairShare;
+    return this;
+  }
+
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Maximum number of dispatches in flight across all connections. Only applies in fair-share mode.
+   */
+  public JsonRpcBatchPolicy setMaxInFlight(int maxInFlight) {
+    this.maxInFlight = requirePositive(maxInFlight, "maxInFlight");
+    return this;
+  }
+
+  private static int requirePositive(int value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be positive");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,56 @@
+package com.lsoftware.jsonrpc;
+
+/**
+ * How the {@link JsonRpcMethodRegistry} deals with methods that block the event loop. A call
+ * running on the event loop for longer than the threshold is counted against its method; methods
+ * that do it repeatedly can be moved to the worker pool.
+ */
+public class JsonRpcBlockingPolicy {
+
+  public static final long DEFAULT_BLOCKING_THRESHOLD_MS = 50;
+  public static final int DEFAULT_DEMOTE_AFTER = 3;
+
+  private long blockingThresholdMs = DEFAULT_BLOCKING_THRESHOLD_MS;
+  private boolean demoteBlockingMethods = false;
+  private int demoteAfter = DEFAULT_DEMOTE_AFTER;
+
+  public long getBlockingThresholdMs() {
+    return blockingThresholdMs;
+  }
+
+  /**
+   * Calls running on the event loop for at least this long are logged and counted as blocking.
+   */
+  public JsonRpcBlockingPolicy setBlockingThresholdMs(long blockingThresholdMs) {
+    if (blockingThresholdMs <= 0) {
+      throw new IllegalArgumentException("blockingThresholdMs must be positive");
+    }
+    this.blockingThresholdMs = blockingThresholdMs;
+    return this;
+  }
+
+  public boolean isDemoteBlockingMethods() {
+    return demoteBlockingMethods;
+  }
+
+  /**
+   * When enabled, a method with {@link #getDemoteAfter()} blocking calls is executed on the worker
+   * pool from then on.
+   */
+  public JsonRpcBlockingPolicy setDemoteBlockingMethods(boolean demoteBlockingMethods) {
+    this.demoteBlockingMethods = demoteBlockingMethods;
+    return this;
+  }
+
+  public int getDemoteAfter() {
+    return demoteAfter;
+  }
+
+  public JsonRpcBlockingPolicy setDemoteAfter(int demoteAfter) {
+    if (demoteAfter <= 0) {
+      throw new IllegalArgumentException("demoteAfter must be positive");
+    }
+    this.demoteAfter = demoteAfter;
+    return this;
+  }
+}
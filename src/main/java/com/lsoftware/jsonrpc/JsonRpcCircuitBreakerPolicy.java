@@ -0,0 +1,136 @@
+package com.lsoftware.jsonrpc;
+
+/**
+ * Per-method circuit breakers applied by the {@link JsonRpcMessageProcessor}. A breaker opens when,
+ * over the rolling window, the rate of failed calls (internal errors and timeouts) or of slow calls
+ * reaches its threshold. While open, calls to the method are answered right away with a {@code
+ * -32006} error; after the open duration a few trial calls are let through and the breaker closes
+ * if they all succeed. Disabled by default.
+ */
+public class JsonRpcCircuitBreakerPolicy {
+
+  public static final long DEFAULT_WINDOW_MS = 10_000;
+  public static final int DEFAULT_MINIMUM_CALLS = 20;
+  public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+  public static final long DEFAULT_SLOW_CALL_THRESHOLD_MS = 1000;
+  public static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+  public static final long DEFAULT_OPEN_DURATION_MS = 5000;
+  public static final int DEFAULT_HALF_OPEN_CALLS = 3;
+
+  private boolean enabled = false;
+  private long windowMs = DEFAULT_WINDOW_MS;
+  private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+  private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+  private long slowCallThresholdMs = DEFAULT_SLOW_CALL_THRESHOLD_MS;
+  private double slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+  private long openDurationMs = DEFAULT_OPEN_DURATION_MS;
+  private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public JsonRpcCircuitBreakerPolicy setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public long getWindowMs() {
+    return windowMs;
+  }
+
+  /**
+   * Length of the rolling window the rates are computed over.
+   */
+  public JsonRpcCircuitBreakerPolicy setWindowMs(long windowMs) {
+    this.windowMs = requirePositive(windowMs, "windowMs");
+    return this;
+  }
+
+  public int getMinimumCalls() {
+    return minimumCalls;
+  }
+
+  /**
+   * Calls the window must hold before the breaker can open.
+   */
+  public JsonRpcCircuitBreakerPolicy setMinimumCalls(int minimumCalls) {
+    this.minimumCalls = requirePositive(minimumCalls, "minimumCalls");
+    return this;
+  }
+
+  public double getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  public JsonRpcCircuitBreakerPolicy setFailureRateThreshold(double failureRateThreshold) {
+    this.failureRateThreshold = requireRate(failureRateThreshold, "failureRateThreshold");
+    return this;
+  }
+
+  public long getSlowCallThresholdMs() {
+    return slowCallThresholdMs;
+  }
+
+  /**
+   * Calls taking at least this long count as slow.
+   */
+  public JsonRpcCircuitBreakerPolicy setSlowCallThresholdMs(long slowCallThresholdMs) {
+    this.slowCallThresholdMs = requirePositive(slowCallThresholdMs, "slowCallThresholdMs");
+    return this;
+  }
+
+  public double getSlowCallRateThreshold() {
+    return slowCallRateThreshold;
+  }
+
+  public JsonRpcCircuitBreakerPolicy setSlowCallRateThreshold(double slowCallRateThreshold) {
+    this.slowCallRateThreshold = requireRate(slowCallRateThreshold, "slowCallRateThreshold");
+    return this;
+  }
+
+  public long getOpenDurationMs() {
+    return openDurationMs;
+  }
+
+  /**
+   * How long an open breaker fails calls before letting trial calls through.
+   */
+  public JsonRpcCircuitBreakerPolicy setOpenDurationMs(long openDurationMs) {
+    this.openDurationMs = requirePositive(openDurationMs, "openDurationMs");
+    return this;
+  }
+
+  public int getHalfOpenCalls() {
+    return halfOpenCalls;
+  }
+
+  /**
+   * Trial calls let through by a half-open breaker, all of them must succeed for it to close.
+   */
+  public JsonRpcCircuitBreakerPolicy setHalfOpenCalls(int halfOpenCalls) {
+    this.halfOpenCalls = requirePositive(halfOpenCalls, "halfOpenCalls");
+    return this;
+  }
+
+  private static int requirePositive(int value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be positive");
+    }
+    return value;
+  }
+
+  private static long requirePositive(long value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be positive");
+    }
+    return value;
+  }
+
+  private static double requireRate(double value, String name) {
+    if (value <= 0 || value > 1) {
+      throw new IllegalArgumentException(name + " must be greater than 0 and at most 1");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,249 @@
+package com.lsoftware.jsonrpc;
+
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponse;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics.MethodStats;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The circuit breakers of a processor, one per method, see {@link JsonRpcCircuitBreakerPolicy}.
+ * Breakers are created by the first failed or slow call of a method and dropped once they are
+ * closed and idle again, so method names that only ever succeed, or aren't found, never get one.
+ * Breaker states are published to the method stats of {@link JsonRpcMetrics}, where each
+ * processor instance has its own.
+ *
+ * <p>Not thread-safe: meant to be used from the context of the verticle that owns it.
+ */
+class JsonRpcCircuitBreakers implements JsonRpcAdmission {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JsonRpcCircuitBreakers.class);
+
+  private static final int METHOD_NOT_FOUND = -32601;
+  private static final int INTERNAL_ERROR = -32603;
+  private static final int WINDOW_BUCKETS = 10;
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final JsonRpcCircuitBreakerPolicy policy;
+  private final JsonRpcMetrics metrics;
+  private final Map<String, Breaker> breakers = new HashMap<>();
+
+  JsonRpcCircuitBreakers(JsonRpcCircuitBreakerPolicy policy, JsonRpcMetrics metrics) {
+    this.policy = policy;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public JsonRpcErrorResponse check(JsonRpcRequest request) {
+    // a method without a breaker has no recent calls, so its breaker would be closed
+    final Breaker breaker = breakers.get(request.getMethod());
+    if (breaker == null || breaker.tryAcquire(System.nanoTime())) {
+      return null;
+    }
+    breaker.stats().rejected();
+    return JsonRpcErrorResponses.methodUnavailable(request.getId());
+  }
+
+  @Override
+  public void cancelled(JsonRpcRequest request) {
+    final Breaker breaker = breakers.get(request.getMethod());
+    if (breaker != null) {
+      breaker.cancelTrialCall();
+    }
+  }
+
+  @Override
+  public void completed(JsonRpcRequest request, Object response, long durationNanos) {
+    final int code = response instanceof JsonRpcErrorResponse
+        ? ((JsonRpcErrorResponse) response).getError().getCode() : 0;
+    if (code == METHOD_NOT_FOUND) {
+      // the name comes from the client, there is nothing to protect
+      return;
+    }
+    final boolean failure = code == INTERNAL_ERROR;
+    final boolean slow =
+        durationNanos >= TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallThresholdMs());
+    final Breaker breaker = failure || slow
+        ? breakers.computeIfAbsent(request.getMethod(), Breaker::new)
+        : breakers.get(request.getMethod());
+    if (breaker != null) {
+      breaker.onResult(System.nanoTime(), failure, slow);
+    }
+  }
+
+  State state(String method) {
+    final Breaker breaker = breakers.get(method);
+    return breaker == null ? State.CLOSED : breaker.state;
+  }
+
+  /**
+   * Drops the closed breakers without calls in their window, they behave the same as new ones.
+   */
+  void evictIdleBreakers() {
+    final long now = System.nanoTime();
+    breakers.values().removeIf(breaker -> breaker.isIdle(now));
+  }
+
+  int size() {
+    return breakers.size();
+  }
+
+  /**
+   * Withdraws the states of the breakers from the method stats, once the processor is stopped.
+   */
+  void close() {
+    breakers.values().forEach(Breaker::close);
+    breakers.clear();
+  }
+
+  private class Breaker {
+
+    private final String method;
+    // looked up once the breaker has something to report, not for every method name called
+    private MethodStats stats;
+    private final long bucketNanos =
+        Math.max(1, TimeUnit.MILLISECONDS.toNanos(policy.getWindowMs()) / WINDOW_BUCKETS);
+    private final long[] bucketIndex = new long[WINDOW_BUCKETS];
+    private final int[] calls = new int[WINDOW_BUCKETS];
+    private final int[] failures = new int[WINDOW_BUCKETS];
+    private final int[] slowCalls = new int[WINDOW_BUCKETS];
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialCalls;
+    private int trialSuccesses;
+
+    private Breaker(String method) {
+      this.method = method;
+    }
+
+    private MethodStats stats() {
+      if (stats == null) {
+        stats = metrics.method(method);
+      }
+      return stats;
+    }
+
+    private boolean tryAcquire(long now) {
+      if (state == State.CLOSED) {
+        return true;
+      }
+      if (state == State.OPEN) {
+        if (now - openedAt < TimeUnit.MILLISECONDS.toNanos(policy.getOpenDurationMs())) {
+          return false;
+        }
+        transition(State.HALF_OPEN);
+      }
+      if (trialCalls >= policy.getHalfOpenCalls()) {
+        return false;
+      }
+      trialCalls++;
+      return true;
+    }
+
+    private void cancelTrialCall() {
+      if (state == State.HALF_OPEN && trialCalls > 0) {
+        trialCalls--;
+      }
+    }
+
+    private boolean isIdle(long now) {
+      if (state != State.CLOSED) {
+        return false;
+      }
+      final long current = Math.floorDiv(now, bucketNanos);
+      for (int i = 0; i < WINDOW_BUCKETS; i++) {
+        if (calls[i] > 0 && current - bucketIndex[i] < WINDOW_BUCKETS) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void close() {
+      if (stats != null) {
+        stats.removeCircuitState(JsonRpcCircuitBreakers.this);
+      }
+    }
+
+    private void onResult(long now, boolean failure, boolean slow) {
+      if (state == State.HALF_OPEN) {
+        if (failure || slow) {
+          open(now);
+        } else if (++trialSuccesses >= policy.getHalfOpenCalls()) {
+          transition(State.CLOSED);
+        }
+        return;
+      }
+      if (state == State.OPEN) {
+        // call admitted before the breaker opened
+        return;
+      }
+
+      final int bucket = bucket(now);
+      calls[bucket]++;
+      failures[bucket] += failure ? 1 : 0;
+      slowCalls[bucket] += slow ? 1 : 0;
+
+      final long current = Math.floorDiv(now, bucketNanos);
+      int windowCalls = 0;
+      int windowFailures = 0;
+      int windowSlowCalls = 0;
+      for (int i = 0; i < WINDOW_BUCKETS; i++) {
+        if (current - bucketIndex[i] < WINDOW_BUCKETS) {
+          windowCalls += calls[i];
+          windowFailures += failures[i];
+          windowSlowCalls += slowCalls[i];
+        }
+      }
+      if (windowCalls >= policy.getMinimumCalls()
+          && (windowFailures >= policy.getFailureRateThreshold() * windowCalls
+          || windowSlowCalls >= policy.getSlowCallRateThreshold() * windowCalls)) {
+        LOG.warn("Opening circuit breaker of method {}: {} failed and {} slow of {} calls",
+            method, windowFailures, windowSlowCalls, windowCalls);
+        open(now);
+      }
+    }
+
+    private int bucket(long now) {
+      final long index = Math.floorDiv(now, bucketNanos);
+      final int bucket = (int) Math.floorMod(index, (long) WINDOW_BUCKETS);
+      if (bucketIndex[bucket] != index) {
+        bucketIndex[bucket] = index;
+        calls[bucket] = 0;
+        failures[bucket] = 0;
+        slowCalls[bucket] = 0;
+      }
+      return bucket;
+    }
+
+    private void open(long now) {
+      openedAt = now;
+      transition(State.OPEN);
+    }
+
+    private void transition(State next) {
+      LOG.debug("Circuit breaker of method {} is now {}", method, next);
+      state = next;
+      trialCalls = 0;
+      trialSuccesses = 0;
+      if (next == State.CLOSED) {
+        for (int i = 0; i < WINDOW_BUCKETS; i++) {
+          calls[i] = 0;
+          failures[i] = 0;
+          slowCalls[i] = 0;
+        }
+      }
+      stats().setCircuitState(JsonRpcCircuitBreakers.this, next.name());
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.lsoftware.jsonrpc;
+
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_DISCOVER_EVENTBUS_ADDRESS;
+
+import com.lsoftware.jsonrpc.api.JsonRpcBatchMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Routes calls to the registry instances of a clustered deployment. Registries announce the methods
+ * they serve; a call goes to an instance on the same node when there is one, otherwise to the remote
+ * instance with the fewest calls in flight from this router. Methods no instance has announced yet
+ * go to the shared method address, where the event bus picks a handler. An instance found to have
+ * no handlers is dropped right away, rather than once its announcements expire, and its calls are
+ * routed again.
+ *
+ * <p>The load of an instance is only what this router observes: the calls it has routed there and
+ * that haven't been answered yet. Registries don't report their load, so the calls of other
+ * processors, on this node or others, aren't taken into account.
+ *
+ * <p>Not thread-safe: meant to be used from the context of the verticle that owns it.
+ */
+class JsonRpcClusterRouter implements JsonRpcMethodRouter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JsonRpcClusterRouter.class);
+
+  private static final String LOCAL_NODE_MAP = "jsonrpc.cluster";
+  private static final long INSTANCE_EXPIRY_MS = 3 * JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS;
+
+  private final Vertx vertx;
+  private final String localNode;
+  private final Map<String, Instance> instances = new HashMap<>();
+  private final Map<String, List<Instance>> instancesByMethod = new HashMap<>();
+  private MessageConsumer<JsonObject> consumer;
+  private long expiryTimer;
+  private int next;
+
+  JsonRpcClusterRouter(Vertx vertx) {
+    this.vertx = vertx;
+    this.localNode = localNode(vertx);
+  }
+
+  /**
+   * Id shared by all the verticles of a Vert.x instance, used to tell local registries from remote
+   * ones.
+   */
+  static String localNode(Vertx vertx) {
+    String node = UUID.randomUUID().toString();
+    String existing = (String) vertx.sharedData().getLocalMap(LOCAL_NODE_MAP)
+        .putIfAbsent("node", node);
+    return existing == null ? node : existing;
+  }
+
+  static String instanceAddress(String address, String instance) {
+    return address + "@" + instance;
+  }
+
+  @Override
+  public Future<Void> start() {
+    Promise<Void> promise = Promise.promise();
+    consumer = vertx.eventBus().consumer(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS,
+        msg -> onAnnouncement(msg.body()));
+    consumer.completionHandler(promise);
+    expiryTimer = vertx.setPeriodic(JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS, t -> expireInstances());
+
+    return promise.future()
+        .onSuccess(v -> vertx.eventBus().publish(JSONRPC_REGISTRY_DISCOVER_EVENTBUS_ADDRESS, null));
+  }
+
+  @Override
+  public Future<Void> stop() {
+    vertx.cancelTimer(expiryTimer);
+    return consumer.unregister();
+  }
+
+  @Override
+  public Route route(String method) {
+    final List<Instance> candidates = instancesByMethod.get(method);
+    if (candidates == null || candidates.isEmpty()) {
+      return JsonRpcMethodRouter.methodRoute(method);
+    }
+
+    // start from a rotating offset so that ties are spread between instances
+    final int offset = next++ & Integer.MAX_VALUE;
+    Instance best = null;
+    for (int i = 0; i < candidates.size(); i++) {
+      Instance candidate = candidates.get((offset + i) % candidates.size());
+      if (best == null
+          || (candidate.local && !best.local)
+          || (candidate.local == best.local && candidate.inFlight < best.inFlight)) {
+        best = candidate;
+      }
+    }
+    return best.route(method);
+  }
+
+  /**
+   * Drops an instance whose addresses have no handlers, then routes the method again: to another
+   * instance or, once none is left, to the shared method address.
+   */
+  private Route failover(Instance instance, String method) {
+    if (instances.remove(instance.id) != null) {
+      LOG.warn("Registry instance {} is gone without leaving, dropping it", instance.id);
+      rebuildMethodIndex();
+    }
+    return route(method);
+  }
+
+  private void onAnnouncement(JsonObject announcement) {
+    final String id = announcement.getString("instance");
+    final Set<String> methods = new HashSet<>();
+    announcement.getJsonArray("methods", new JsonArray()).forEach(m -> methods.add((String) m));
+
+    if (methods.isEmpty()) {
+      LOG.debug("Registry instance {} left", id);
+      if (instances.remove(id) != null) {
+        rebuildMethodIndex();
+      }
+      return;
+    }
+
+    Instance instance = instances.get(id);
+    if (instance == null) {
+      LOG.debug("Registry instance {} joined with {} methods", id, methods.size());
+      instance = new Instance(id, localNode.equals(announcement.getString("node")));
+      instances.put(id, instance);
+    }
+    instance.lastSeen = System.currentTimeMillis();
+    if (!instance.methods.equals(methods)) {
+      instance.methods = methods;
+      rebuildMethodIndex();
+    }
+  }
+
+  private void expireInstances() {
+    final long now = System.currentTimeMillis();
+    boolean expired = false;
+    for (Iterator<Instance> it = instances.values().iterator(); it.hasNext(); ) {
+      Instance instance = it.next();
+      if (now - instance.lastSeen > INSTANCE_EXPIRY_MS) {
+        LOG.debug("Registry instance {} expired", instance.id);
+        it.remove();
+        expired = true;
+      }
+    }
+    if (expired) {
+      rebuildMethodIndex();
+    }
+  }
+
+  private void rebuildMethodIndex() {
+    instancesByMethod.clear();
+    instances.values().forEach(instance -> instance.methods.forEach(method ->
+        instancesByMethod.computeIfAbsent(method, m -> new ArrayList<>()).add(instance)));
+  }
+
+  private class Instance {
+
+    private final String id;
+    private final boolean local;
+    private Set<String> methods = new HashSet<>();
+    private long lastSeen;
+    private int inFlight;
+
+    private Instance(String id, boolean local) {
+      this.id = id;
+      this.local = local;
+    }
+
+    private Route route(String method) {
+      inFlight++;
+      return new Route() {
+        @Override
+        public String address() {
+          return instanceAddress(JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + method, id);
+        }
+
+        @Override
+        public String batchAddress() {
+          return instanceAddress(JsonRpcBatchMethod.batchEventBusAddress(method), id);
+        }
+
+        @Override
+        public void release() {
+          inFlight--;
+        }
+
+        @Override
+        public Route failover() {
+          return JsonRpcClusterRouter.this.failover(Instance.this, method);
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.lsoftware.jsonrpc;
+
+/**
+ * How requests are routed from the {@link JsonRpcMessageProcessor} to the methods of the {@link
+ * JsonRpcMethodRegistry}. The processor and the registry must be deployed with the same mode.
+ */
+public enum JsonRpcDispatchMode {
+
+  /**
+   * One event-bus consumer per method, at the method own address. Methods can only be added before
+   * the registry is started.
+   */
+  PER_METHOD,
+
+  /**
+   * A single dispatcher consumer per registry, which looks the method up in a copy-on-write method
+   * table. Methods can be added, replaced and removed while the registry is running.
+   *
+   * <p>All the registries share the dispatcher address and the event bus spreads the calls between
+   * them round-robin, regardless of the methods they serve. Every registry must therefore have the
+   * same method table: a call reaching a registry without its method is answered with a {@code
+   * -32601} error, even if another registry serves it. Changes made at runtime must be applied to
+   * every registry instance.
+   */
+  DISPATCHER,
+
+  /**
+   * Per-method consumers on a clustered event bus. Registries announce the methods they serve and
+   * processors route each call to a specific registry instance, preferring instances on the same
+   * node and otherwise the one with the fewest calls in flight.
+   */
+  CLUSTERED
+}
@@ -0,0 +1,291 @@
+package com.lsoftware.jsonrpc;
+
+import com.lsoftware.jsonrpc.monitoring.LatencyHistogram;
+import io.vertx.core.Future;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.function.Function;
+
+/**
+ * Dispatches the calls of each batch through a sliding window of {@link
+ * JsonRpcBatchPolicy#getMaxBatchConcurrency()} calls. In fair-share mode, or when priority lanes
+ * are enabled, the windows of all the batches also share a global number of slots: slots are
+ * handed out between the priority lanes by smooth weighted round-robin and, in fair-share mode,
+ * round-robin between the connections of a lane.
+ *
+ * <p>Not thread-safe: meant to be used from the context of the verticle that owns it.
+ */
+class JsonRpcDispatchScheduler {
+
+  /**
+   * A single event-bus dispatch. Its future completes when the dispatch is done, with follow-up
+   * units that must be dispatched for the same batch (e.g. calls that couldn't be dispatched as a
+   * group).
+   */
+  @FunctionalInterface
+  interface DispatchUnit {
+
+    Future<List<DispatchUnit>> dispatch();
+  }
+
+  private final JsonRpcBatchPolicy policy;
+  private final boolean queued;
+  private final Map<JsonRpcPriority, Lane> lanes = new EnumMap<>(JsonRpcPriority.class);
+  private int inFlight;
+  private boolean pumping;
+  private boolean pumpAgain;
+
+  JsonRpcDispatchScheduler(JsonRpcBatchPolicy policy) {
+    this(policy, new JsonRpcPriorityPolicy(), priority -> new LatencyHistogram());
+  }
+
+  JsonRpcDispatchScheduler(JsonRpcBatchPolicy policy, JsonRpcPriorityPolicy priorityPolicy,
+      Function<JsonRpcPriority, LatencyHistogram> latencies) {
+    this.policy = policy;
+    this.queued = policy.isFairShare() || priorityPolicy.isEnabled();
+    for (JsonRpcPriority priority : JsonRpcPriority.values()) {
+      lanes.put(priority,
+          new Lane(priorityPolicy.getWeight(priority), latencies.apply(priority)));
+    }
+  }
+
+  void submit(String connection, List<DispatchUnit> units) {
+    submit(connection, JsonRpcPriority.NORMAL, units);
+  }
+
+  void submit(String connection, JsonRpcPriority priority, List<DispatchUnit> units) {
+    if (units.isEmpty()) {
+      return;
+    }
+
+    final Lane lane = lanes.get(priority);
+    final Batch batch = new Batch(lane, policy.isFairShare() ? connection : "", units);
+    if (!queued) {
+      pump(batch);
+      return;
+    }
+
+    lane.add(batch);
+    pumpQueued();
+  }
+
+  private void pump(Batch batch) {
+    if (batch.pumping) {
+      batch.pumpAgain = true;
+      return;
+    }
+    batch.pumping = true;
+    do {
+      batch.pumpAgain = false;
+      while (batch.inFlight < policy.getMaxBatchConcurrency() && !batch.pending.isEmpty()) {
+        start(batch, () -> pump(batch));
+      }
+    } while (batch.pumpAgain);
+    batch.pumping = false;
+  }
+
+  private void pumpQueued() {
+    if (pumping) {
+      pumpAgain = true;
+      return;
+    }
+    pumping = true;
+    do {
+      pumpAgain = false;
+      while (inFlight < policy.getMaxInFlight()) {
+        final Lane lane = nextLane();
+        if (lane == null) {
+          break;
+        }
+        final Batch batch = lane.poll();
+
+        inFlight++;
+        start(batch, () -> {
+          inFlight--;
+          batch.lane.update(batch);
+          pumpQueued();
+        });
+      }
+    } while (pumpAgain);
+    pumping = false;
+  }
+
+  /**
+   * Smooth weighted round-robin between the lanes with dispatchable calls: over time each lane gets
+   * a share of the slots proportional to its weight, without long runs of the same lane.
+   */
+  private Lane nextLane() {
+    Lane best = null;
+    int totalWeight = 0;
+    for (Lane lane : lanes.values()) {
+      if (!lane.hasDispatchable()) {
+        continue;
+      }
+      lane.currentWeight += lane.weight;
+      totalWeight += lane.weight;
+      if (best == null || lane.currentWeight > best.currentWeight) {
+        best = lane;
+      }
+    }
+    if (best != null) {
+      best.currentWeight -= totalWeight;
+    }
+    return best;
+  }
+
+  private void start(Batch batch, Runnable onDone) {
+    final DispatchUnit unit = batch.pending.pollFirst();
+    batch.inFlight++;
+    unit.dispatch().onComplete(ar -> {
+      batch.inFlight--;
+      batch.lane.latency.record(System.nanoTime() - batch.submitted);
+      if (ar.succeeded() && ar.result() != null) {
+        ListIterator<DispatchUnit> followUps = ar.result().listIterator(ar.result().size());
+        while (followUps.hasPrevious()) {
+          batch.pending.addFirst(followUps.previous());
+        }
+      }
+      onDone.run();
+    });
+  }
+
+  private boolean isDispatchable(Batch batch) {
+    return !batch.pending.isEmpty() && batch.inFlight < policy.getMaxBatchConcurrency();
+  }
+
+  /**
+   * The batches of a priority lane. Only the connections and batches with dispatchable calls are
+   * queued, so that picking the next call doesn't scan the others. A batch is queued when it
+   * becomes dispatchable (it is submitted or one of its calls completes), and dropped lazily once
+   * it isn't anymore, when it reaches the head of its queue.
+   */
+  private class Lane {
+
+    private final int weight;
+    private final LatencyHistogram latency;
+    private final Map<String, Connection> connections = new HashMap<>();
+    private final Deque<Connection> ready = new ArrayDeque<>();
+    private int currentWeight;
+    private long nextSequence;
+
+    private Lane(int weight, LatencyHistogram latency) {
+      this.weight = weight;
+      this.latency = latency;
+    }
+
+    private void add(Batch batch) {
+      batch.sequence = nextSequence++;
+      batch.owner = connections.computeIfAbsent(batch.connection, Connection::new);
+      batch.owner.batches++;
+      update(batch);
+    }
+
+    /**
+     * Queues the batch if it has become dispatchable, forgets it once it is done.
+     */
+    private void update(Batch batch) {
+      final Connection connection = batch.owner;
+      if (batch.pending.isEmpty() && batch.inFlight == 0) {
+        if (--connection.batches == 0) {
+          connections.remove(connection.id);
+        }
+        return;
+      }
+      if (batch.queued || !isDispatchable(batch)) {
+        return;
+      }
+      batch.queued = true;
+      connection.ready.add(batch);
+      if (!connection.queued) {
+        connection.queued = true;
+        // connections that haven't been served yet go ahead of the ones that have
+        if (connection.served) {
+          ready.addLast(connection);
+        } else {
+          ready.addFirst(connection);
+        }
+      }
+    }
+
+    private boolean hasDispatchable() {
+      return head() != null;
+    }
+
+    /**
+     * Next batch to dispatch from, round-robin between connections. Only called when the lane
+     * {@link #hasDispatchable()}.
+     */
+    private Batch poll() {
+      final Connection connection = head();
+      final Batch batch = connection.ready.peek();
+      connection.served = true;
+      ready.pollFirst();
+      ready.addLast(connection);
+      return batch;
+    }
+
+    /**
+     * First queued connection with a dispatchable batch at the head of its queue, dropping what
+     * isn't dispatchable anymore on the way.
+     */
+    private Connection head() {
+      Connection connection;
+      while ((connection = ready.peekFirst()) != null) {
+        Batch batch;
+        while ((batch = connection.ready.peek()) != null && !isDispatchable(batch)) {
+          connection.ready.poll();
+          batch.queued = false;
+        }
+        if (batch != null) {
+          return connection;
+        }
+        ready.pollFirst();
+        connection.queued = false;
+      }
+      return null;
+    }
+  }
+
+  private static class Connection {
+
+    private final String id;
+    // oldest batches first, as they were submitted
+    private final Queue<Batch> ready =
+        new PriorityQueue<>(Comparator.comparingLong(batch -> batch.sequence));
+    private int batches;
+    private boolean queued;
+    private boolean served;
+
+    private Connection(String id) {
+      this.id = id;
+    }
+  }
+
+  private static class Batch {
+
+    private final Lane lane;
+    private final String connection;
+    private final Deque<DispatchUnit> pending;
+    private final long submitted = System.nanoTime();
+    private Connection owner;
+    private long sequence;
+    private boolean queued;
+    private int inFlight;
+    private boolean pumping;
+    private boolean pumpAgain;
+
+    private Batch(Lane lane, String connection, List<DispatchUnit> units) {
+      this.lane = lane;
+      this.connection = connection;
+      this.pending = new ArrayDeque<>(units);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.lsoftware.jsonrpc;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drain phase of a graceful shutdown, shared by all the verticles of a Vert.x instance. Once the
+ * drain has started health checks fail, the transports stop taking new work and each verticle waits
+ * in {@code stop} for its calls in flight to complete, up to the drain deadline. Without a drain
+ * verticles stop right away.
+ */
+public class JsonRpcDrain implements Shareable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JsonRpcDrain.class);
+
+  public static final long DEFAULT_DRAIN_TIMEOUT_MS = 30_000;
+  private static final String LOCAL_MAP = "jsonrpc.drain";
+  private static final long POLL_INTERVAL_MS = 20;
+
+  private final Vertx vertx;
+  private volatile long deadline = -1;
+
+  private JsonRpcDrain(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  public static JsonRpcDrain get(Vertx vertx) {
+    LocalMap<String, JsonRpcDrain> map = vertx.sharedData().getLocalMap(LOCAL_MAP);
+    JsonRpcDrain drain = map.get(LOCAL_MAP);
+    if (drain == null) {
+      drain = new JsonRpcDrain(vertx);
+      JsonRpcDrain existing = map.putIfAbsent(LOCAL_MAP, drain);
+      if (existing != null) {
+        drain = existing;
+      }
+    }
+    return drain;
+  }
+
+  /**
+   * Starts draining, calls still in flight after the timeout are cut off.
+   */
+  public synchronized void start(long timeoutMs) {
+    if (deadline == -1) {
+      LOG.info("Draining, waiting up to {} ms for calls in flight", timeoutMs);
+      deadline = System.currentTimeMillis() + timeoutMs;
+    }
+  }
+
+  public boolean isDraining() {
+    return deadline != -1;
+  }
+
+  /**
+   * Completes once the given count drops to zero, or at the deadline. Completes right away when not
+   * draining.
+   */
+  public Future<Void> awaitIdle(String what, LongSupplier inFlight) {
+    Promise<Void> promise = Promise.promise();
+    poll(what, inFlight, promise);
+    return promise.future();
+  }
+
+  private void poll(String what, LongSupplier inFlight, Promise<Void> promise) {
+    final long pending = inFlight.getAsLong();
+    if (pending <= 0 || !isDraining()) {
+      promise.complete();
+    } else if (System.currentTimeMillis() >= deadline) {
+      LOG.warn("Drain deadline reached with {} {} still in flight", pending, what);
+      promise.complete();
+    } else {
+      vertx.setTimer(POLL_INTERVAL_MS, t -> poll(what, inFlight, promise));
+    }
+  }
+}
@@ -1,19 +1,28 @@
 package com.lsoftware.jsonrpc;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
+import com.lsoftware.jsonrpc.api.JsonRpcResponse;
 import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcParseEvent;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcRequestEvent;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcTracing;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.DecodeException;
-import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.jackson.DatabindCodec;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,47 +30,221 @@ public class JsonRpcMessageProcessor extends AbstractVerticle {
 
   private static final Logger LOG = LoggerFactory.getLogger(JsonRpcMessageProcessor.class);
   public static final String JSONRPC_PROCESSOR_EVENTBUS_ADDRESS = "jsonrpc.processor";
+  public static final String JSONRPC_CONNECTION_HEADER = "jsonrpc.connection";
+  public static final String JSONRPC_CLIENT_HEADER = "jsonrpc.client";
+  public static final String JSONRPC_PRIORITY_HEADER = "jsonrpc.priority";
+  private static final long EVICTION_INTERVAL_MS = 60_000;
+
+  private final JsonRpcProcessorOptions options;
+  private final JsonRpcBatchPolicy batchPolicy;
+  private JsonRpcDispatchScheduler scheduler;
+  private JsonRpcMethodRouter router;
+  private JsonRpcRateLimiter rateLimiter;
+  private JsonRpcCircuitBreakers circuitBreakers;
+  private JsonRpcMetrics metrics;
+  private int inFlight;
+  private long evictionTimer = -1;
   private MessageConsumer<Object> consumer;
 
+  public JsonRpcMessageProcessor() {
+    this(new JsonRpcProcessorOptions());
+  }
+
+  public JsonRpcMessageProcessor(JsonRpcBatchPolicy batchPolicy) {
+    this(new JsonRpcProcessorOptions().setBatchPolicy(batchPolicy));
+  }
+
+  public JsonRpcMessageProcessor(JsonRpcBatchPolicy batchPolicy,
+      JsonRpcDispatchMode dispatchMode) {
+    this(new JsonRpcProcessorOptions().setBatchPolicy(batchPolicy).setDispatchMode(dispatchMode));
+  }
+
+  public JsonRpcMessageProcessor(JsonRpcProcessorOptions options) {
+    this.options = options;
+    this.batchPolicy = options.getBatchPolicy();
+  }
+
   @Override
   public void start(Promise<Void> startFuture) {
     DatabindCodec.mapper().enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
+    metrics = JsonRpcMetrics.get(vertx);
+    scheduler = new JsonRpcDispatchScheduler(batchPolicy, options.getPriorityPolicy(),
+        priority -> metrics.priorityLatency(priority.name()));
+    router = JsonRpcMethodRouter.forMode(vertx, options.getDispatchMode());
+    if (options.getCircuitBreakerPolicy().isEnabled()) {
+      circuitBreakers = new JsonRpcCircuitBreakers(options.getCircuitBreakerPolicy(), metrics);
+    }
+    if (options.getRateLimitPolicy().isEnabled()) {
+      rateLimiter = new JsonRpcRateLimiter(options.getRateLimitPolicy(),
+          context.getInstanceCount());
+    }
+    if (rateLimiter != null || circuitBreakers != null) {
+      evictionTimer = vertx.setPeriodic(EVICTION_INTERVAL_MS, t -> evictIdleState());
+    }
+    // the router falls back to the shared method addresses until it has discovered the registries,
+    // so there is no need to wait for it before consuming
+    Promise<Void> registered = Promise.promise();
     consumer = vertx.eventBus().consumer(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, messageHandler());
-    consumer.completionHandler(startFuture);
+    consumer.completionHandler(registered);
+    CompositeFuture.all(router.start(), registered.future()).<Void>mapEmpty()
+        .onComplete(startFuture);
   }
 
   @Override
   public void stop(Promise<Void> stopPromise) {
-    consumer.unregister(stopPromise);
+    if (evictionTimer != -1) {
+      vertx.cancelTimer(evictionTimer);
+    }
+    consumer.unregister()
+        .compose(v -> JsonRpcDrain.get(vertx).awaitIdle("requests", () -> inFlight))
+        .compose(v -> router.stop())
+        .onComplete(ar -> {
+          if (circuitBreakers != null) {
+            circuitBreakers.close();
+          }
+          stopPromise.handle(ar);
+        });
+  }
+
+  private void evictIdleState() {
+    if (rateLimiter != null) {
+      rateLimiter.evictIdleBuckets();
+    }
+    if (circuitBreakers != null) {
+      circuitBreakers.evictIdleBreakers();
+    }
   }
 
   private Handler<Message<Object>> messageHandler() {
     return msg -> {
       LOG.trace("Processing incoming message '{}'", msg.body());
 
+      final long start = System.nanoTime();
+      metrics.processorInFlight().increment();
+      inFlight++;
+      final String body = (String) msg.body();
+      final String traceId = traceId(msg);
+
+      final JsonRpcRequestEvent requestEvent = new JsonRpcRequestEvent();
+      requestEvent.begin();
+      requestEvent.traceId = traceId;
+      requestEvent.requestChars = body == null ? 0 : body.length();
+
+      final JsonRpcParseEvent parseEvent = new JsonRpcParseEvent();
+      parseEvent.begin();
       final JsonArray jsonArray;
       try {
-        jsonArray = decodeMessage((String) msg.body());
+        jsonArray = decodeMessage(body);
       } catch (JsonRpcException e) {
-        msg.reply(Json.encode(e.getErrorResponse()));
+        if (parseEvent.shouldCommit()) {
+          parseEvent.traceId = traceId;
+          parseEvent.chars = requestEvent.requestChars;
+          parseEvent.errorCode = e.getErrorResponse().getError().getCode();
+          parseEvent.commit();
+        }
+        reply(msg, JsonRpcCodec.encodeResponse(e.getErrorResponse()), requestEvent);
         return;
       }
+      final long parseNanos = System.nanoTime() - start;
+      if (parseEvent.shouldCommit()) {
+        parseEvent.traceId = traceId;
+        parseEvent.batchSize = jsonArray.size();
+        parseEvent.chars = requestEvent.requestChars;
+        parseEvent.commit();
+      }
+
+      final DeliveryOptions dispatchOptions = new DeliveryOptions();
+      if (traceId != null) {
+        dispatchOptions.addHeader(JsonRpcTracing.TRACE_ID_HEADER, traceId);
+      }
 
-      final JsonRpcRequestProcessor processor = new JsonRpcRequestProcessor(vertx, jsonArray);
+      final String connection = msg.headers().get(JSONRPC_CONNECTION_HEADER);
+      final JsonRpcRequestProcessor processor = new JsonRpcRequestProcessor(vertx, jsonArray,
+          scheduler, router, admission(msg), priorities(msg), dispatchOptions,
+          connection == null ? "" : connection);
       final List<Future> futures = processor.processRequests();
 
       CompositeFuture.all(futures).onComplete(ar -> {
         CompositeFuture result = ar.result();
         List<Object> responses = result.list();
+        requestEvent.batchSize = responses.size();
         if (responses.size() == 1) {
-          msg.reply(Json.encode(responses.get(0)));
+          reply(msg, JsonRpcCodec.encodeResponse((JsonRpcResponse) responses.get(0)),
+              requestEvent);
         } else {
-          msg.reply(Json.encode(responses));
+          reply(msg, JsonRpcCodec.encodeResponses(responses), requestEvent);
         }
+        logIfSlow(traceId, start, parseNanos, jsonArray.size(), processor);
       });
     };
   }
 
+  private void reply(Message<Object> msg, String response, JsonRpcRequestEvent requestEvent) {
+    msg.reply(response);
+    metrics.processorInFlight().decrement();
+    inFlight--;
+    requestEvent.responseChars = response.length();
+    requestEvent.commit();
+  }
+
+  private String traceId(Message<Object> msg) {
+    final String traceId = JsonRpcTracing.traceId(msg.headers());
+    if (traceId != null) {
+      return traceId;
+    }
+    final double sampleRate = options.getTracingOptions().getSampleRate();
+    if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+      return JsonRpcTracing.newTraceId();
+    }
+    return null;
+  }
+
+  private void logIfSlow(String traceId, long start, long parseNanos, int batchSize,
+      JsonRpcRequestProcessor processor) {
+    final long thresholdMs = options.getTracingOptions().getSlowRequestThresholdMs();
+    final long durationNanos = System.nanoTime() - start;
+    if (thresholdMs <= 0 || durationNanos < TimeUnit.MILLISECONDS.toNanos(thresholdMs)) {
+      return;
+    }
+    LOG.warn("Slow request took {} ms (trace {}, batch of {}): parse {} us, slowest dispatch "
+            + "'{}' {} ms", TimeUnit.NANOSECONDS.toMillis(durationNanos), traceId, batchSize,
+        TimeUnit.NANOSECONDS.toMicros(parseNanos), processor.getSlowestMethod(),
+        TimeUnit.NANOSECONDS.toMillis(processor.getSlowestDispatchNanos()));
+  }
+
+  private JsonRpcAdmission admission(Message<Object> msg) {
+    // the breakers first, a call they fail fast doesn't use up a rate limit permit
+    final JsonRpcAdmission admission = rateLimitAdmission(msg);
+    return circuitBreakers == null ? admission : circuitBreakers.andThen(admission);
+  }
+
+  private JsonRpcAdmission rateLimitAdmission(Message<Object> msg) {
+    if (rateLimiter == null) {
+      return JsonRpcAdmission.ADMIT_ALL;
+    }
+
+    String client = msg.headers().get(JSONRPC_CLIENT_HEADER);
+    if (client == null) {
+      client = msg.headers().get(JSONRPC_CONNECTION_HEADER);
+    }
+    final String clientId = client == null ? "" : client;
+    return request -> rateLimiter.tryAcquire(clientId, request.getMethod())
+        ? null
+        : JsonRpcErrorResponses.limitExceeded(request.getId());
+  }
+
+  private Function<String, JsonRpcPriority> priorities(Message<Object> msg) {
+    final JsonRpcPriorityPolicy policy = options.getPriorityPolicy();
+    if (policy.isCallerPriority()) {
+      final JsonRpcPriority priority =
+          JsonRpcPriority.parse(msg.headers().get(JSONRPC_PRIORITY_HEADER));
+      if (priority != null) {
+        return method -> priority;
+      }
+    }
+    return policy::getPriority;
+  }
+
   private JsonArray decodeMessage(String msg) {
     JsonArray jsonArray = null;
     try {
@@ -69,6 +252,10 @@ public class JsonRpcMessageProcessor extends AbstractVerticle {
       if (jsonArray.isEmpty()) {
         throw new JsonRpcException(JsonRpcErrorResponses.invalidRequest());
       }
+      if (jsonArray.size() > batchPolicy.getMaxBatchLength()) {
+        throw new JsonRpcException(
+            JsonRpcErrorResponses.batchTooLarge(batchPolicy.getMaxBatchLength()));
+      }
     } catch (DecodeException e) {
       throw new JsonRpcException(JsonRpcErrorResponses.parseError());
     }
@@ -1,22 +1,42 @@
 package com.lsoftware.jsonrpc;
 
+import com.lsoftware.jsonrpc.api.JsonRpcBatchMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
 import com.lsoftware.jsonrpc.api.JsonRpcMethod;
 import com.lsoftware.jsonrpc.api.JsonRpcRequest;
 import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
 import com.lsoftware.jsonrpc.methods.JsonRpcMethodGroup;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMethodEvent;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics.MethodStats;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcTracing;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.impl.ConcurrentHashSet;
-import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,35 +44,106 @@ public class JsonRpcMethodRegistry extends AbstractVerticle {
 
   private static final Logger LOG = LoggerFactory.getLogger(JsonRpcMessageProcessor.class);
 
-  private final Map<String, JsonRpcMethod> availableMethods = new HashMap<>();
+  public static final String JSONRPC_DISPATCHER_EVENTBUS_ADDRESS = "jsonrpc.dispatcher";
+  public static final String JSONRPC_DISPATCHER_BATCH_EVENTBUS_ADDRESS =
+      JSONRPC_DISPATCHER_EVENTBUS_ADDRESS + JsonRpcBatchMethod.JSONRPC_BATCH_EVENTBUS_ADDRESS_SUFFIX;
+
+  public static final String JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS = "jsonrpc.registry.announce";
+  public static final String JSONRPC_REGISTRY_DISCOVER_EVENTBUS_ADDRESS = "jsonrpc.registry.discover";
+  public static final long JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS = 1000;
+
+  private final JsonRpcDispatchMode dispatchMode;
+  private final JsonRpcBlockingPolicy blockingPolicy;
+  private JsonRpcMetrics metrics;
+  private final String instanceId = UUID.randomUUID().toString();
+  private long announceTimer = -1;
+  private final AtomicReference<Map<String, JsonRpcMethod>> availableMethods =
+      new AtomicReference<>(Collections.emptyMap());
   private final Set<MessageConsumer<?>> consumers = new ConcurrentHashSet<>();
   private final AtomicBoolean started = new AtomicBoolean(false);
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  public JsonRpcMethodRegistry() {
+    this(JsonRpcDispatchMode.PER_METHOD);
+  }
+
+  public JsonRpcMethodRegistry(JsonRpcDispatchMode dispatchMode) {
+    this(dispatchMode, new JsonRpcBlockingPolicy());
+  }
+
+  public JsonRpcMethodRegistry(JsonRpcDispatchMode dispatchMode,
+      JsonRpcBlockingPolicy blockingPolicy) {
+    this.dispatchMode = dispatchMode;
+    this.blockingPolicy = blockingPolicy;
+  }
 
   @Override
   public void start(Promise<Void> startPromise) {
+    metrics = JsonRpcMetrics.get(vertx);
     List<Future> futures = new ArrayList<>();
 
-    availableMethods.forEach((name, method) -> {
-      Promise<Void> promise = Promise.promise();
-      futures.add(promise.future());
+    if (dispatchMode == JsonRpcDispatchMode.DISPATCHER) {
+      LOG.debug("Registering dispatcher for {} methods", availableMethods.get().size());
 
-      LOG.debug("Registering method '{}'", name);
+      futures.add(registerConsumer(JSONRPC_DISPATCHER_EVENTBUS_ADDRESS, msg -> {
+        JsonRpcRequest request = JsonRpcCodec.decodeRequest((String) msg.body());
+        JsonRpcMethod method = availableMethods.get().get(request.getMethod());
+        if (method == null) {
+          msg.reply(JsonRpcCodec.encodeResult(methodNotFound()));
+          return;
+        }
+        processRequest(method, request, msg);
+      }));
+      futures.add(registerConsumer(JSONRPC_DISPATCHER_BATCH_EVENTBUS_ADDRESS, msg -> {
+        List<JsonRpcRequest> requests = decodeBatch(msg);
+        JsonRpcMethod method = availableMethods.get().get(requests.get(0).getMethod());
+        if (method == null) {
+          msg.reply(JsonRpcCodec.encodeResults(
+              Collections.nCopies(requests.size(), methodNotFound())));
+          return;
+        }
+        processBatch(method, requests, msg);
+      }));
+    } else {
+      availableMethods.get().forEach((name, method) -> {
+        LOG.debug("Registering method '{}'", name);
 
-      MessageConsumer<Object> consumer = vertx.eventBus()
-          .consumer(method.eventBusAddress(), msg -> {
-            LOG.trace("Method {} consuming message {}", method.name(), msg.body());
+        futures.add(registerConsumer(method.eventBusAddress(), msg -> processRequest(method,
+            JsonRpcCodec.decodeRequest((String) msg.body()), msg)));
 
-            JsonRpcRequest request = Json.decodeValue((String) msg.body(), JsonRpcRequest.class);
-            JsonRpcResult result = method.process(request.getParams());
-            msg.reply(Json.encode(result));
-          });
-      consumer.completionHandler(promise);
-      consumers.add(consumer);
-    });
+        if (method instanceof JsonRpcBatchMethod) {
+          futures.add(registerConsumer(((JsonRpcBatchMethod) method).batchEventBusAddress(),
+              msg -> processBatch(method, decodeBatch(msg), msg)));
+        }
+
+        // sharded calls and routed cluster calls are addressed to this instance
+        if (dispatchMode == JsonRpcDispatchMode.CLUSTERED || method.shardKey() != null) {
+          futures.add(registerConsumer(
+              JsonRpcClusterRouter.instanceAddress(method.eventBusAddress(), instanceId),
+              msg -> processRequest(method,
+                  JsonRpcCodec.decodeRequest((String) msg.body()), msg)));
+          if (method instanceof JsonRpcBatchMethod) {
+            futures.add(registerConsumer(JsonRpcClusterRouter.instanceAddress(
+                JsonRpcBatchMethod.batchEventBusAddress(name), instanceId),
+                msg -> processBatch(method, decodeBatch(msg), msg)));
+          }
+        }
+      });
+    }
+
+    if (announces()) {
+      futures.add(registerConsumer(JSONRPC_REGISTRY_DISCOVER_EVENTBUS_ADDRESS,
+          msg -> announce(availableMethods.get())));
+    }
 
     CompositeFuture.all(futures).onComplete(result -> {
       if (result.succeeded()) {
         started.set(true);
+        if (announces()) {
+          announce(availableMethods.get());
+          announceTimer = vertx.setPeriodic(JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS,
+              t -> announce(availableMethods.get()));
+        }
         startPromise.complete();
       } else {
         startPromise.fail(result.cause());
@@ -60,36 +151,244 @@ public class JsonRpcMethodRegistry extends AbstractVerticle {
     });
   }
 
-  @Override
-  public void stop(Promise<Void> endFuture) {
-    List<Future> futures = new ArrayList<>();
-    consumers.forEach(c -> futures.add(c.unregister()));
+  /**
+   * Registries announce themselves in clustered mode, in dispatcher mode where the batch-capable
+   * methods can change at any time, or when they serve sharded or batch-capable methods.
+   */
+  private boolean announces() {
+    return dispatchMode == JsonRpcDispatchMode.CLUSTERED
+        || dispatchMode == JsonRpcDispatchMode.DISPATCHER
+        || (dispatchMode == JsonRpcDispatchMode.PER_METHOD
+        && availableMethods.get().values().stream()
+        .anyMatch(m -> m.shardKey() != null || m instanceof JsonRpcBatchMethod));
+  }
 
-    CompositeFuture.all(futures).onComplete(result -> {
+  /**
+   * Tells the routers which methods this instance serves, which of them take whole batches and
+   * the shard keys of its sharded methods. An empty set of methods means the instance is leaving.
+   */
+  private void announce(Map<String, JsonRpcMethod> methods) {
+    final JsonObject shards = new JsonObject();
+    final JsonArray batchMethods = new JsonArray();
+    methods.forEach((name, method) -> {
+      // dispatchers take the calls to every method, they have no addresses of their own
+      if (method.shardKey() != null && dispatchMode != JsonRpcDispatchMode.DISPATCHER) {
+        shards.put(name, method.shardKey().toJson());
+      }
+      if (method instanceof JsonRpcBatchMethod) {
+        batchMethods.add(name);
+      }
+    });
+    vertx.eventBus().publish(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS, new JsonObject()
+        .put("instance", instanceId)
+        .put("node", JsonRpcClusterRouter.localNode(vertx))
+        .put("methods", new JsonArray(new ArrayList<>(methods.keySet())))
+        .put("batchMethods", batchMethods)
+        .put("shards", shards));
+  }
+
+  private Future<Void> registerConsumer(String address, Handler<Message<Object>> handler) {
+    Promise<Void> promise = Promise.promise();
+    MessageConsumer<Object> consumer = vertx.eventBus().consumer(address, handler);
+    consumer.completionHandler(promise);
+    consumers.add(consumer);
+    return promise.future();
+  }
+
+  private void processRequest(JsonRpcMethod method, JsonRpcRequest request, Message<Object> msg) {
+    LOG.trace("Method {} consuming request {}", method.name(), request);
+    execute(method, 1, msg, () -> JsonRpcCodec.encodeResult(method.process(request)));
+  }
+
+  private void processBatch(JsonRpcMethod method, List<JsonRpcRequest> requests,
+      Message<Object> msg) {
+    LOG.trace("Method {} consuming batch of {} requests", method.name(), requests.size());
+    execute(method, requests.size(), msg, () -> {
+      if (method instanceof JsonRpcBatchMethod) {
+        return JsonRpcCodec.encodeResults(((JsonRpcBatchMethod) method).processBatch(requests));
+      }
+      // each call fails on its own, as it would have dispatched alone
+      final List<JsonRpcResult> results = new ArrayList<>(requests.size());
+      requests.forEach(request -> {
+        try {
+          results.add(method.process(request));
+        } catch (RuntimeException e) {
+          LOG.debug("Method {} failed processing a request of a batch", method.name(), e);
+          results.add(new JsonRpcResult(
+              JsonRpcErrorResponses.internalError(null, e.getMessage()).getError()));
+        }
+      });
+      return JsonRpcCodec.encodeResults(results);
+    });
+  }
+
+  /**
+   * Runs a call on the event loop, or on the worker pool if its method has been demoted for
+   * blocking the event loop. The call is in flight until it is replied to, so that calls waiting
+   * for a worker thread hold off the drain as well.
+   */
+  private void execute(JsonRpcMethod method, int batchSize, Message<Object> msg,
+      Supplier<String> call) {
+    final MethodStats stats = metrics.method(method.name());
+    metrics.registryInFlight().increment();
+    inFlight.incrementAndGet();
+    if (stats.isDemoted()) {
+      vertx.<String>executeBlocking(
+          promise -> promise.complete(run(method, batchSize, msg, call, stats)), false,
+          ar -> reply(msg, ar));
+      return;
+    }
+
+    AsyncResult<String> result;
+    try {
+      result = Future.succeededFuture(run(method, batchSize, msg, call, stats));
+    } catch (RuntimeException e) {
+      result = Future.failedFuture(e);
+    }
+    reply(msg, result);
+  }
+
+  private void reply(Message<Object> msg, AsyncResult<String> result) {
+    try {
       if (result.succeeded()) {
-        consumers.clear();
-        started.set(false);
-        endFuture.complete();
+        msg.reply(result.result());
       } else {
-        endFuture.fail(result.cause());
+        msg.fail(-1, result.cause().getMessage());
       }
-    });
+    } finally {
+      metrics.registryInFlight().decrement();
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private String run(JsonRpcMethod method, int batchSize, Message<Object> msg,
+      Supplier<String> call, MethodStats stats) {
+    final JsonRpcMethodEvent event = new JsonRpcMethodEvent();
+    final long start = System.nanoTime();
+    event.begin();
+    try {
+      return call.get();
+    } catch (RuntimeException e) {
+      LOG.debug("Method {} failed processing {} request(s)", method.name(), batchSize, e);
+      throw e;
+    } finally {
+      processed(event, start, method, batchSize, msg);
+      recordBlocking(method, stats, System.nanoTime() - start);
+    }
   }
 
+  private void recordBlocking(JsonRpcMethod method, MethodStats stats, long durationNanos) {
+    final boolean blocking = stats.record(durationNanos, Context.isOnEventLoopThread(),
+        TimeUnit.MILLISECONDS.toNanos(blockingPolicy.getBlockingThresholdMs()));
+    if (!blocking) {
+      return;
+    }
+    LOG.debug("Method {} blocked the event loop for {} ms", method.name(),
+        TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    if (blockingPolicy.isDemoteBlockingMethods() && !stats.isDemoted()
+        && stats.blockingCalls() >= blockingPolicy.getDemoteAfter()) {
+      LOG.warn("Method {} blocked the event loop {} times, moving it to the worker pool",
+          method.name(), stats.blockingCalls());
+      stats.demote();
+    }
+  }
 
+  private void processed(JsonRpcMethodEvent event, long start, JsonRpcMethod method,
+      int batchSize, Message<Object> msg) {
+    event.end();
+    final String traceId = JsonRpcTracing.traceId(msg.headers());
+    if (traceId != null) {
+      LOG.debug("Trace {}: method {} processed {} request(s) in {} us", traceId, method.name(),
+          batchSize, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+    if (event.shouldCommit()) {
+      event.traceId = traceId;
+      event.method = method.name();
+      event.batchSize = batchSize;
+      event.commit();
+    }
+  }
+
+  private List<JsonRpcRequest> decodeBatch(Message<Object> msg) {
+    return Arrays.asList(JsonRpcCodec.decodeRequests((String) msg.body()));
+  }
+
+  private JsonRpcResult methodNotFound() {
+    return new JsonRpcResult(JsonRpcErrorResponses.methodNotFound(null).getError());
+  }
+
+  @Override
+  public void stop(Promise<Void> endFuture) {
+    if (announceTimer != -1) {
+      vertx.cancelTimer(announceTimer);
+      announceTimer = -1;
+      announce(Collections.emptyMap());
+    }
+
+    List<Future> futures = new ArrayList<>();
+    consumers.forEach(c -> futures.add(c.unregister()));
+
+    CompositeFuture.all(futures)
+        .compose(v -> JsonRpcDrain.get(vertx).awaitIdle("method calls", inFlight::get))
+        .onComplete(result -> {
+          if (result.succeeded()) {
+            consumers.clear();
+            started.set(false);
+            endFuture.complete();
+          } else {
+            endFuture.fail(result.cause());
+          }
+        });
+  }
+
+  /**
+   * Adds a method, replacing any method with the same name. In {@link
+   * JsonRpcDispatchMode#DISPATCHER} mode this can be done at any time and takes effect for the next
+   * request, and must be done on every registry instance.
+   */
   public void addMethod(JsonRpcMethod method) {
-    if (!started.get()) {
-      availableMethods.put(method.name(), method);
-    } else {
-      LOG.warn("Can't add new methods after the registry has been started");
+    if (canUpdateMethods()) {
+      updateMethods(methods -> methods.put(method.name(), method));
     }
   }
 
   public void addMethodGroup(JsonRpcMethodGroup group) {
-    if (!started.get()) {
-      group.methods().forEach(this::addMethod);
-    } else {
-      LOG.warn("Can't add new methods after the registry has been started");
+    if (canUpdateMethods()) {
+      updateMethods(methods -> group.methods().forEach(m -> methods.put(m.name(), m)));
+    }
+  }
+
+  /**
+   * Removes a method. In {@link JsonRpcDispatchMode#DISPATCHER} mode this can be done at any time,
+   * and must be done on every registry instance.
+   */
+  public void removeMethod(String name) {
+    if (canUpdateMethods()) {
+      updateMethods(methods -> methods.remove(name));
+    }
+  }
+
+  private boolean canUpdateMethods() {
+    if (started.get() && dispatchMode != JsonRpcDispatchMode.DISPATCHER) {
+      LOG.warn("Can't change methods after the registry has been started");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Copy-on-write update of the method table: readers always see a complete, immutable table and
+   * never block, concurrent writers retry on conflict.
+   */
+  private void updateMethods(Consumer<Map<String, JsonRpcMethod>> update) {
+    final Map<String, JsonRpcMethod> methods = availableMethods.updateAndGet(current -> {
+      Map<String, JsonRpcMethod> copy = new HashMap<>(current);
+      update.accept(copy);
+      return Collections.unmodifiableMap(copy);
+    });
+    // a running dispatcher tells the routers about its new batch methods right away
+    if (started.get() && announces()) {
+      announce(methods);
     }
   }
 }
@@ -0,0 +1,107 @@
+package com.lsoftware.jsonrpc;
+
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_DISPATCHER_BATCH_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_DISPATCHER_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.api.JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX;
+
+import com.lsoftware.jsonrpc.api.JsonRpcBatchMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+/**
+ * Resolves the event-bus addresses a request is dispatched to, according to the {@link
+ * JsonRpcDispatchMode} of the processor.
+ */
+interface JsonRpcMethodRouter {
+
+  Route route(String method);
+
+  /**
+   * Route of a single request, which may depend on its params.
+   */
+  default Route route(JsonRpcRequest request) {
+    return route(request.getMethod());
+  }
+
+  /**
+   * The registry instance a request is pinned to, or null if it can go to any instance. Requests
+   * to the same method and shard can be dispatched together.
+   */
+  default String shard(JsonRpcRequest request) {
+    return null;
+  }
+
+  default Future<Void> start() {
+    return Future.succeededFuture();
+  }
+
+  default Future<Void> stop() {
+    return Future.succeededFuture();
+  }
+
+  interface Route {
+
+    String address();
+
+    /**
+     * Address taking all the calls to the method within a batch in one message, or null if the
+     * method isn't known to be batch-capable and its calls must be dispatched one by one.
+     */
+    String batchAddress();
+
+    /**
+     * Called once the dispatch made through this route has completed.
+     */
+    default void release() {
+    }
+
+    /**
+     * Route to retry a dispatch on when the address of this one has no handlers, e.g. because the
+     * registry instance it points to is gone without saying so. Null if there is nowhere else to
+     * try, the method is then not found.
+     */
+    default Route failover() {
+      return null;
+    }
+  }
+
+  static JsonRpcMethodRouter forMode(Vertx vertx, JsonRpcDispatchMode dispatchMode) {
+    switch (dispatchMode) {
+      case DISPATCHER: {
+        Route dispatcher = new Route() {
+          @Override
+          public String address() {
+            return JSONRPC_DISPATCHER_EVENTBUS_ADDRESS;
+          }
+
+          @Override
+          public String batchAddress() {
+            return JSONRPC_DISPATCHER_BATCH_EVENTBUS_ADDRESS;
+          }
+        };
+        // dispatchers announce their batch methods, the calls to the others go one by one
+        return new JsonRpcShardRouter(vertx, method -> dispatcher);
+      }
+      case CLUSTERED:
+        return new JsonRpcShardRouter(vertx, new JsonRpcClusterRouter(vertx));
+      case PER_METHOD:
+      default:
+        return new JsonRpcShardRouter(vertx, JsonRpcMethodRouter::methodRoute);
+    }
+  }
+
+  static Route methodRoute(String method) {
+    return new Route() {
+      @Override
+      public String address() {
+        return JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + method;
+      }
+
+      @Override
+      public String batchAddress() {
+        return JsonRpcBatchMethod.batchEventBusAddress(method);
+      }
+    };
+  }
+}
@@ -0,0 +1,24 @@
+package com.lsoftware.jsonrpc;
+
+/**
+ * Priority class of a call. See {@link JsonRpcPriorityPolicy}.
+ */
+public enum JsonRpcPriority {
+  HIGH,
+  NORMAL,
+  LOW;
+
+  /**
+   * Case-insensitive lookup, returns null for null or unknown names.
+   */
+  public static JsonRpcPriority parse(String name) {
+    if (name == null) {
+      return null;
+    }
+    try {
+      return valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
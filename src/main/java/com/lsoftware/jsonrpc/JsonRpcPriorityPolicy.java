@@ -0,0 +1,79 @@
+package com.lsoftware.jsonrpc;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Priority lanes of the {@link JsonRpcMessageProcessor}. Each priority class has its own queue and
+ * calls are dispatched from the queues by weighted round-robin, sharing the {@link
+ * JsonRpcBatchPolicy#getMaxInFlight()} dispatch slots, so under load high priority calls go ahead of
+ * queued low priority work. Lanes are disabled until a method priority is set or caller priorities
+ * are enabled.
+ */
+public class JsonRpcPriorityPolicy {
+
+  public static final int DEFAULT_HIGH_WEIGHT = 16;
+  public static final int DEFAULT_NORMAL_WEIGHT = 4;
+  public static final int DEFAULT_LOW_WEIGHT = 1;
+
+  private final Map<String, JsonRpcPriority> methodPriorities = new HashMap<>();
+  private final Map<JsonRpcPriority, Integer> weights = new EnumMap<>(JsonRpcPriority.class);
+  private boolean callerPriority = false;
+
+  public JsonRpcPriorityPolicy() {
+    weights.put(JsonRpcPriority.HIGH, DEFAULT_HIGH_WEIGHT);
+    weights.put(JsonRpcPriority.NORMAL, DEFAULT_NORMAL_WEIGHT);
+    weights.put(JsonRpcPriority.LOW, DEFAULT_LOW_WEIGHT);
+  }
+
+  public Map<String, JsonRpcPriority> getMethodPriorities() {
+    return Collections.unmodifiableMap(methodPriorities);
+  }
+
+  /**
+   * Priority of the calls to the given method, methods without one are {@link
+   * JsonRpcPriority#NORMAL}.
+   */
+  public JsonRpcPriorityPolicy setMethodPriority(String method, JsonRpcPriority priority) {
+    methodPriorities.put(method, priority);
+    return this;
+  }
+
+  public JsonRpcPriority getPriority(String method) {
+    return methodPriorities.getOrDefault(method, JsonRpcPriority.NORMAL);
+  }
+
+  public int getWeight(JsonRpcPriority priority) {
+    return weights.get(priority);
+  }
+
+  /**
+   * Share of the dispatch slots given to a priority class when all classes have calls queued.
+   */
+  public JsonRpcPriorityPolicy setWeight(JsonRpcPriority priority, int weight) {
+    if (weight <= 0) {
+      throw new IllegalArgumentException("weight must be positive");
+    }
+    weights.put(priority, weight);
+    return this;
+  }
+
+  public boolean isCallerPriority() {
+    return callerPriority;
+  }
+
+  /**
+   * When enabled, a priority set by the caller (the {@code JsonRpc-Priority} HTTP header) applies
+   * to all the calls of the request, overriding the method priorities.
+   */
+  public JsonRpcPriorityPolicy setCallerPriority(boolean callerPriority) {
+    this.callerPriority = callerPriority;
+    return this;
+  }
+
+  public boolean isEnabled() {
+    return callerPriority || !methodPriorities.isEmpty();
+  }
+}
@@ -0,0 +1,72 @@
+package com.lsoftware.jsonrpc;
+
+/**
+ * Options of the {@link JsonRpcMessageProcessor}.
+ */
+public class JsonRpcProcessorOptions {
+
+  private JsonRpcBatchPolicy batchPolicy = new JsonRpcBatchPolicy();
+  private JsonRpcDispatchMode dispatchMode = JsonRpcDispatchMode.PER_METHOD;
+  private JsonRpcRateLimitPolicy rateLimitPolicy = new JsonRpcRateLimitPolicy();
+  private JsonRpcTracingOptions tracingOptions = new JsonRpcTracingOptions();
+  private JsonRpcPriorityPolicy priorityPolicy = new JsonRpcPriorityPolicy();
+  private JsonRpcCircuitBreakerPolicy circuitBreakerPolicy = new JsonRpcCircuitBreakerPolicy();
+
+  public JsonRpcBatchPolicy getBatchPolicy() {
+    return batchPolicy;
+  }
+
+  public JsonRpcProcessorOptions setBatchPolicy(JsonRpcBatchPolicy batchPolicy) {
+    this.batchPolicy = batchPolicy;
+    return this;
+  }
+
+  public JsonRpcDispatchMode getDispatchMode() {
+    return dispatchMode;
+  }
+
+  /**
+   * Must match the dispatch mode of the {@link JsonRpcMethodRegistry}.
+   */
+  public JsonRpcProcessorOptions setDispatchMode(JsonRpcDispatchMode dispatchMode) {
+    this.dispatchMode = dispatchMode;
+    return this;
+  }
+
+  public JsonRpcRateLimitPolicy getRateLimitPolicy() {
+    return rateLimitPolicy;
+  }
+
+  public JsonRpcProcessorOptions setRateLimitPolicy(JsonRpcRateLimitPolicy rateLimitPolicy) {
+    this.rateLimitPolicy = rateLimitPolicy;
+    return this;
+  }
+
+  public JsonRpcTracingOptions getTracingOptions() {
+    return tracingOptions;
+  }
+
+  public JsonRpcProcessorOptions setTracingOptions(JsonRpcTracingOptions tracingOptions) {
+    this.tracingOptions = tracingOptions;
+    return this;
+  }
+
+  public JsonRpcPriorityPolicy getPriorityPolicy() {
+    return priorityPolicy;
+  }
+
+  public JsonRpcProcessorOptions setPriorityPolicy(JsonRpcPriorityPolicy priorityPolicy) {
+    this.priorityPolicy = priorityPolicy;
+    return this;
+  }
+
+  public JsonRpcCircuitBreakerPolicy getCircuitBreakerPolicy() {
+    return circuitBreakerPolicy;
+  }
+
+  public JsonRpcProcessorOptions setCircuitBreakerPolicy(
+      JsonRpcCircuitBreakerPolicy circuitBreakerPolicy) {
+    this.circuitBreakerPolicy = circuitBreakerPolicy;
+    return this;
+  }
+}
@@ -0,0 +1,66 @@
+package com.lsoftware.jsonrpc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token-bucket limits applied by the {@link JsonRpcMessageProcessor} before dispatching a call. A
+ * client is identified by the transport: the remote host or a configured header for HTTP, the
+ * connection for WebSockets. No limits are applied by default.
+ */
+public class JsonRpcRateLimitPolicy {
+
+  private Limit clientLimit;
+  private final Map<String, Limit> methodLimits = new HashMap<>();
+
+  public Limit getClientLimit() {
+    return clientLimit;
+  }
+
+  /**
+   * Limit on the calls of each client, across all methods.
+   */
+  public JsonRpcRateLimitPolicy setClientLimit(double permitsPerSecond, int burst) {
+    this.clientLimit = new Limit(permitsPerSecond, burst);
+    return this;
+  }
+
+  public Map<String, Limit> getMethodLimits() {
+    return Collections.unmodifiableMap(methodLimits);
+  }
+
+  /**
+   * Limit on the calls of each client to the given method.
+   */
+  public JsonRpcRateLimitPolicy setMethodLimit(String method, double permitsPerSecond, int burst) {
+    methodLimits.put(method, new Limit(permitsPerSecond, burst));
+    return this;
+  }
+
+  public boolean isEnabled() {
+    return clientLimit != null || !methodLimits.isEmpty();
+  }
+
+  public static class Limit {
+
+    private final double permitsPerSecond;
+    private final int burst;
+
+    public Limit(double permitsPerSecond, int burst) {
+      if (permitsPerSecond <= 0 || burst <= 0) {
+        throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+      }
+      this.permitsPerSecond = permitsPerSecond;
+      this.burst = burst;
+    }
+
+    public double getPermitsPerSecond() {
+      return permitsPerSecond;
+    }
+
+    public int getBurst() {
+      return burst;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.lsoftware.jsonrpc;
+
+import com.lsoftware.jsonrpc.JsonRpcRateLimitPolicy.Limit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enforces a {@link JsonRpcRateLimitPolicy}. Each processor instance owns one limiter, a stripe of
+ * the policy: the event bus spreads messages evenly between the instances, so each stripe gets its
+ * share of the configured rate and burst and no state is shared between event loops. Buckets are
+ * lock-free (a single compare-and-set per call) so they stay correct if a limiter is ever shared.
+ */
+class JsonRpcRateLimiter {
+
+  private static final char KEY_SEPARATOR = '\u0000';
+
+  private final JsonRpcRateLimitPolicy policy;
+  private final int stripes;
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+  JsonRpcRateLimiter(JsonRpcRateLimitPolicy policy, int stripes) {
+    this.policy = policy;
+    this.stripes = Math.max(1, stripes);
+  }
+
+  /**
+   * Takes a permit for a call of the client to the method, returns false if any of the applicable
+   * limits is exhausted. A rejected call consumes no permit from any of the limits.
+   */
+  boolean tryAcquire(String client, String method) {
+    final long now = System.nanoTime();
+
+    final Limit methodLimit = policy.getMethodLimits().get(method);
+    final Bucket methodBucket = methodLimit == null
+        ? null : bucket(client + KEY_SEPARATOR + method, methodLimit, now);
+    if (methodBucket != null && !methodBucket.tryAcquire(now)) {
+      return false;
+    }
+
+    final Limit clientLimit = policy.getClientLimit();
+    if (clientLimit == null || bucket(client, clientLimit, now).tryAcquire(now)) {
+      return true;
+    }
+    if (methodBucket != null) {
+      methodBucket.release();
+    }
+    return false;
+  }
+
+  /**
+   * Drops the buckets that are full again, they behave the same as new ones.
+   */
+  void evictIdleBuckets() {
+    final long now = System.nanoTime();
+    buckets.values().removeIf(bucket -> bucket.isIdle(now));
+  }
+
+  int size() {
+    return buckets.size();
+  }
+
+  private Bucket bucket(String key, Limit limit, long now) {
+    Bucket bucket = buckets.get(key);
+    if (bucket == null) {
+      bucket = buckets.computeIfAbsent(key, k -> new Bucket(limit, stripes, now));
+    }
+    return bucket;
+  }
+
+  /**
+   * Token bucket implemented as a generic cell rate algorithm: the whole state is the theoretical
+   * arrival time of the next call.
+   */
+  private static class Bucket {
+
+    private final long emissionInterval;
+    private final long tolerance;
+    private final AtomicLong theoreticalArrival;
+
+    private Bucket(Limit limit, int stripes, long now) {
+      final int burst = Math.max(1, (int) Math.ceil((double) limit.getBurst() / stripes));
+      this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) * stripes
+          / limit.getPermitsPerSecond());
+      this.tolerance = emissionInterval * (burst - 1);
+      this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    private boolean tryAcquire(long now) {
+      while (true) {
+        final long current = theoreticalArrival.get();
+        final long next = Math.max(current, now);
+        if (next - now > tolerance) {
+          return false;
+        }
+        if (theoreticalArrival.compareAndSet(current, next + emissionInterval)) {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Gives back a permit taken by {@link #tryAcquire(long)}.
+     */
+    private void release() {
+      theoreticalArrival.addAndGet(-emissionInterval);
+    }
+
+    private boolean isIdle(long now) {
+      return theoreticalArrival.get() - now <= 0;
+    }
+  }
+}
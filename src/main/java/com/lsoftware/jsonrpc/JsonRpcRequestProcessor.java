@@ -1,26 +1,35 @@
 package com.lsoftware.jsonrpc;
 
-import static com.lsoftware.jsonrpc.api.JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX;
-
+import com.lsoftware.jsonrpc.JsonRpcDispatchScheduler.DispatchUnit;
+import com.lsoftware.jsonrpc.JsonRpcMethodRouter.Route;
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
 import com.lsoftware.jsonrpc.api.JsonRpcRequest;
 import com.lsoftware.jsonrpc.api.JsonRpcResponse;
 import com.lsoftware.jsonrpc.api.JsonRpcResult;
 import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
 import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponse;
 import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcDispatchEvent;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcTracing;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.json.DecodeException;
-import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,14 +39,36 @@ public class JsonRpcRequestProcessor {
 
   private final Vertx vertx;
   private final JsonArray jsonArray;
+  private final JsonRpcDispatchScheduler scheduler;
+  private final JsonRpcMethodRouter router;
+  private final JsonRpcAdmission admission;
+  private final Function<String, JsonRpcPriority> priorities;
+  private final DeliveryOptions dispatchOptions;
+  private final String traceId;
+  private final String connection;
   private final List<Future> futures = new ArrayList<>();
+  private String slowestMethod;
+  private long slowestDispatchNanos;
 
-  JsonRpcRequestProcessor(Vertx vertx, JsonArray jsonArray) {
+  JsonRpcRequestProcessor(Vertx vertx, JsonArray jsonArray, JsonRpcDispatchScheduler scheduler,
+      JsonRpcMethodRouter router, JsonRpcAdmission admission,
+      Function<String, JsonRpcPriority> priorities, DeliveryOptions dispatchOptions,
+      String connection) {
     this.vertx = vertx;
     this.jsonArray = jsonArray;
+    this.scheduler = scheduler;
+    this.router = router;
+    this.admission = admission;
+    this.priorities = priorities;
+    this.dispatchOptions = dispatchOptions;
+    this.traceId = dispatchOptions.getHeaders() == null
+        ? null : JsonRpcTracing.traceId(dispatchOptions.getHeaders());
+    this.connection = connection;
   }
 
   List<Future> processRequests() {
+    final Map<String, List<PendingRequest>> requestsByGroup = new LinkedHashMap<>();
+
     jsonArray.forEach(json -> {
       LOG.trace("Processing JSON-RPC request '{}'", json);
 
@@ -52,21 +83,155 @@ public class JsonRpcRequestProcessor {
         return;
       }
 
-      final String eventBusAddress =
-          JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + request.getMethod();
+      final JsonRpcErrorResponse rejection = admission.check(request);
+      if (rejection != null) {
+        promise.complete(rejection);
+        return;
+      }
 
-      LOG.trace("Dispatching request {} to {}", Json.encode(request), eventBusAddress);
+      // calls pinned to different registry instances can't share a dispatch
+      final String shard = router.shard(request);
+      final String group = shard == null
+          ? request.getMethod() : JsonRpcClusterRouter.instanceAddress(request.getMethod(), shard);
+      requestsByGroup.computeIfAbsent(group, g -> new ArrayList<>())
+          .add(new PendingRequest(request, promise));
+    });
 
-      vertx.eventBus()
-          .request(eventBusAddress, Json.encode(request), handleResponse(request, promise));
+    final Map<JsonRpcPriority, List<DispatchUnit>> unitsByPriority =
+        new EnumMap<>(JsonRpcPriority.class);
+    requestsByGroup.forEach((group, requests) -> {
+      final String method = requests.get(0).request.getMethod();
+      final List<DispatchUnit> units = unitsByPriority
+          .computeIfAbsent(priorities.apply(method), p -> new ArrayList<>());
+      if (requests.size() == 1) {
+        units.add(() -> dispatch(requests.get(0)));
+      } else {
+        units.add(() -> dispatchBatch(method, requests));
+      }
     });
+    unitsByPriority.forEach((priority, units) -> scheduler.submit(connection, priority, units));
 
     return futures;
   }
 
+  private Future<List<DispatchUnit>> dispatch(PendingRequest pending) {
+    final JsonRpcDispatchEvent event = new JsonRpcDispatchEvent();
+    final long start = System.nanoTime();
+    event.begin();
+    send(pending, router.route(pending.request));
+    return pending.promise.future()
+        .onComplete(response -> {
+          final long duration = dispatched(event, start, pending.request.getMethod(), 1);
+          admission.completed(pending.request, response.result(), duration);
+        })
+        .map(response -> Collections.emptyList());
+  }
+
+  private void send(PendingRequest pending, Route route) {
+    final String eventBusAddress = route.address();
+
+    LOG.trace("Dispatching request {} to {}", pending.request, eventBusAddress);
+
+    vertx.eventBus().request(eventBusAddress, JsonRpcCodec.encodeRequest(pending.request),
+        dispatchOptions, response -> {
+          route.release();
+          final Route failover = hasNoHandlers(response) ? route.failover() : null;
+          if (failover != null) {
+            send(pending, failover);
+          } else {
+            handleResponse(pending.request, pending.promise).handle(response);
+          }
+        });
+  }
+
+  /**
+   * Dispatches all the calls to the same method in one message to the batch address of its route.
+   * Routes of methods that aren't known to be batch-capable have none, in which case each call is
+   * handed back to the scheduler to be dispatched on its own.
+   */
+  private Future<List<DispatchUnit>> dispatchBatch(String method, List<PendingRequest> requests) {
+    final Promise<List<DispatchUnit>> done = Promise.promise();
+    final List<JsonRpcRequest> batch = new ArrayList<>(requests.size());
+    requests.forEach(pending -> batch.add(pending.request));
+
+    final JsonRpcDispatchEvent event = new JsonRpcDispatchEvent();
+    final long start = System.nanoTime();
+    event.begin();
+    sendBatch(method, requests, batch, router.route(requests.get(0).request), event, start, done);
+    return done.future();
+  }
+
+  private void sendBatch(String method, List<PendingRequest> requests, List<JsonRpcRequest> batch,
+      Route route, JsonRpcDispatchEvent event, long start, Promise<List<DispatchUnit>> done) {
+    final String eventBusAddress = route.batchAddress();
+    if (eventBusAddress == null) {
+      route.release();
+      final List<DispatchUnit> units = new ArrayList<>(requests.size());
+      requests.forEach(pending -> units.add(() -> dispatch(pending)));
+      done.complete(units);
+      return;
+    }
+
+    LOG.trace("Dispatching batch of {} requests to {}", batch.size(), eventBusAddress);
+
+    vertx.eventBus()
+        .request(eventBusAddress, JsonRpcCodec.encodeRequests(batch), dispatchOptions, response -> {
+          route.release();
+          final Route failover = hasNoHandlers(response) ? route.failover() : null;
+          if (failover != null) {
+            sendBatch(method, requests, batch, failover, event, start, done);
+            return;
+          }
+
+          final long duration = dispatched(event, start, method, batch.size());
+          if (response.succeeded()) {
+            JsonRpcResult[] results =
+                JsonRpcCodec.decodeResults((String) response.result().body());
+            for (int i = 0; i < requests.size(); i++) {
+              PendingRequest pending = requests.get(i);
+              pending.promise.complete(i < results.length
+                  ? toJsonRpcResponse(pending.request, results[i])
+                  : JsonRpcErrorResponses.internalError(pending.request.getId(), null));
+            }
+          } else {
+            requests.forEach(pending -> handleResponse(pending.request, pending.promise)
+                .handle(Future.failedFuture(response.cause())));
+          }
+          requests.forEach(pending ->
+              admission.completed(pending.request, pending.promise.future().result(), duration));
+          done.complete(Collections.emptyList());
+        });
+  }
+
+  /**
+   * Records a completed dispatch, returns its duration.
+   */
+  private long dispatched(JsonRpcDispatchEvent event, long start, String method, int batchSize) {
+    final long duration = System.nanoTime() - start;
+    if (duration > slowestDispatchNanos) {
+      slowestDispatchNanos = duration;
+      slowestMethod = method;
+    }
+    if (event.shouldCommit()) {
+      event.traceId = traceId;
+      event.method = method;
+      event.batchSize = batchSize;
+      event.commit();
+    }
+    return duration;
+  }
+
+  String getSlowestMethod() {
+    return slowestMethod;
+  }
+
+  long getSlowestDispatchNanos() {
+    return slowestDispatchNanos;
+  }
+
   private JsonRpcRequest parseRequest(Object json) {
     try {
-      JsonRpcRequest request = ((JsonObject) json).mapTo(JsonRpcRequest.class);
+      JsonRpcRequest request = JsonRpcCodec.decodeRequest((JsonObject) json);
       if (!request.isValid()) {
         throw new JsonRpcException(JsonRpcErrorResponses.invalidRequest());
       }
@@ -81,14 +246,8 @@ public class JsonRpcRequestProcessor {
     return response -> {
       final JsonRpcResponse jsonRpcResponse;
       if (response.succeeded()) {
-        JsonRpcResult result = Json
-            .decodeValue((String) response.result().body(), JsonRpcResult.class);
-
-        if (result.isSuccess()) {
-          jsonRpcResponse = new JsonRpcSuccessResponse(request.getId(), result.getResult());
-        } else {
-          jsonRpcResponse = new JsonRpcErrorResponse(request.getId(), result.getError());
-        }
+        JsonRpcResult result = JsonRpcCodec.decodeResult((String) response.result().body());
+        jsonRpcResponse = toJsonRpcResponse(request, result);
       } else {
         if (response.cause() instanceof ReplyException) {
           jsonRpcResponse = replyExceptionToJsonRpcError(request, response);
@@ -100,6 +259,19 @@ public class JsonRpcRequestProcessor {
     };
   }
 
+  private static boolean hasNoHandlers(AsyncResult<Message<Object>> response) {
+    return response.failed() && response.cause() instanceof ReplyException
+        && ((ReplyException) response.cause()).failureType() == ReplyFailure.NO_HANDLERS;
+  }
+
+  private JsonRpcResponse toJsonRpcResponse(JsonRpcRequest request, JsonRpcResult result) {
+    if (result.isSuccess()) {
+      return new JsonRpcSuccessResponse(request.getId(), result.getResult());
+    } else {
+      return new JsonRpcErrorResponse(request.getId(), result.getError());
+    }
+  }
+
   private JsonRpcResponse replyExceptionToJsonRpcError(JsonRpcRequest request,
       AsyncResult<Message<Object>> resp) {
     ReplyException replyException = (ReplyException) resp.cause();
@@ -117,4 +289,15 @@ public class JsonRpcRequestProcessor {
         return JsonRpcErrorResponses.internalError(request.getId(), null);
     }
   }
+
+  private static class PendingRequest {
+
+    private final JsonRpcRequest request;
+    private final Promise<Object> promise;
+
+    private PendingRequest(JsonRpcRequest request, Promise<Object> promise) {
+      this.request = request;
+      this.promise = promise;
+    }
+  }
 }
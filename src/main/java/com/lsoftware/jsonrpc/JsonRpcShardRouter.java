@@ -0,0 +1,282 @@
+package com.lsoftware.jsonrpc;
+
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_DISCOVER_EVENTBUS_ADDRESS;
+
+import com.lsoftware.jsonrpc.api.JsonRpcBatchMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcShardKey;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Routes the calls of sharded methods (see {@link JsonRpcMethod#shardKey()}) to the registry
+ * instance owning their key, and everything else through the wrapped router. Keys are assigned to
+ * the instances serving the method by rendezvous hashing: every router picks the same instance for
+ * a key, and when an instance joins or leaves only the keys it owns move.
+ *
+ * <p>Batch addresses are only routed to for the methods every registry serving them announces as
+ * a {@link JsonRpcBatchMethod}, the calls to any other method are dispatched one by one.
+ *
+ * <p>Not thread-safe: meant to be used from the context of the verticle that owns it.
+ */
+class JsonRpcShardRouter implements JsonRpcMethodRouter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JsonRpcShardRouter.class);
+
+  private static final long INSTANCE_EXPIRY_MS = 3 * JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS;
+
+  private final Vertx vertx;
+  private final JsonRpcMethodRouter delegate;
+  private final Map<String, Instance> instances = new HashMap<>();
+  private final Map<String, ShardedMethod> shardedMethods = new HashMap<>();
+  private final Set<String> batchMethods = new HashSet<>();
+  private MessageConsumer<JsonObject> consumer;
+  private long expiryTimer;
+
+  JsonRpcShardRouter(Vertx vertx, JsonRpcMethodRouter delegate) {
+    this.vertx = vertx;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Future<Void> start() {
+    Promise<Void> promise = Promise.promise();
+    consumer = vertx.eventBus().consumer(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS,
+        msg -> onAnnouncement(msg.body()));
+    consumer.completionHandler(promise);
+    expiryTimer = vertx.setPeriodic(JSONRPC_REGISTRY_ANNOUNCE_INTERVAL_MS, t -> expireInstances());
+
+    return promise.future()
+        .compose(v -> delegate.start())
+        .onSuccess(v -> vertx.eventBus().publish(JSONRPC_REGISTRY_DISCOVER_EVENTBUS_ADDRESS, null));
+  }
+
+  @Override
+  public Future<Void> stop() {
+    vertx.cancelTimer(expiryTimer);
+    return consumer.unregister().compose(v -> delegate.stop());
+  }
+
+  @Override
+  public Route route(String method) {
+    return batchCapable(delegate.route(method), method);
+  }
+
+  @Override
+  public Route route(JsonRpcRequest request) {
+    final String shard = shard(request);
+    if (shard == null) {
+      return batchCapable(delegate.route(request), request.getMethod());
+    }
+    final String method = request.getMethod();
+    return batchCapable(new Route() {
+      @Override
+      public String address() {
+        return JsonRpcClusterRouter.instanceAddress(
+            JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + method, shard);
+      }
+
+      @Override
+      public String batchAddress() {
+        return JsonRpcClusterRouter.instanceAddress(
+            JsonRpcBatchMethod.batchEventBusAddress(method), shard);
+      }
+
+      @Override
+      public Route failover() {
+        return JsonRpcShardRouter.this.failover(shard, request);
+      }
+    }, method);
+  }
+
+  /**
+   * The route itself for batch-capable methods, otherwise the same route without a batch address.
+   */
+  private Route batchCapable(Route route, String method) {
+    if (batchMethods.contains(method)) {
+      return route;
+    }
+    return new Route() {
+      @Override
+      public String address() {
+        return route.address();
+      }
+
+      @Override
+      public String batchAddress() {
+        return null;
+      }
+
+      @Override
+      public void release() {
+        route.release();
+      }
+
+      @Override
+      public Route failover() {
+        final Route failover = route.failover();
+        return failover == null ? null : batchCapable(failover, method);
+      }
+    };
+  }
+
+  /**
+   * Drops an instance whose addresses have no handlers, then routes the request again. Only the
+   * keys the instance owned move, to the instances that would own them had it left.
+   */
+  private Route failover(String instance, JsonRpcRequest request) {
+    if (instances.remove(instance) != null) {
+      LOG.warn("Registry instance {} is gone without leaving, dropping it", instance);
+      rebuildMethodIndex();
+    }
+    return route(request);
+  }
+
+  @Override
+  public String shard(JsonRpcRequest request) {
+    final ShardedMethod method = shardedMethods.get(request.getMethod());
+    if (method == null) {
+      return null;
+    }
+    final Object key = method.key.extract(request);
+    if (key == null) {
+      return null;
+    }
+
+    final int keyHash = String.valueOf(key).hashCode();
+    String owner = null;
+    long ownerScore = 0;
+    for (String instance : method.instances) {
+      final long score = score(keyHash, instance);
+      if (owner == null || score > ownerScore) {
+        owner = instance;
+        ownerScore = score;
+      }
+    }
+    return owner;
+  }
+
+  /**
+   * Rendezvous hashing weight of an instance for a key.
+   */
+  private static long score(int keyHash, String instance) {
+    long h = ((long) keyHash << 32) ^ (instance.hashCode() & 0xffffffffL);
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private void onAnnouncement(JsonObject announcement) {
+    final String id = announcement.getString("instance");
+    final boolean leaving = announcement.getJsonArray("methods", new JsonArray()).isEmpty();
+
+    if (leaving) {
+      if (instances.remove(id) != null) {
+        LOG.debug("Registry instance {} left", id);
+        rebuildMethodIndex();
+      }
+      return;
+    }
+
+    final Map<String, JsonRpcShardKey> shards = new HashMap<>();
+    announcement.getJsonObject("shards", new JsonObject()).forEach(entry ->
+        shards.put(entry.getKey(), JsonRpcShardKey.fromJson((JsonObject) entry.getValue())));
+    final Set<String> methods = new HashSet<>();
+    announcement.getJsonArray("methods").forEach(m -> methods.add((String) m));
+    final Set<String> batchMethods = new HashSet<>();
+    announcement.getJsonArray("batchMethods", new JsonArray())
+        .forEach(m -> batchMethods.add((String) m));
+
+    Instance instance = instances.get(id);
+    if (instance == null) {
+      LOG.debug("Registry instance {} joined with {} sharded and {} batch methods", id,
+          shards.size(), batchMethods.size());
+      instance = new Instance(id);
+      instances.put(id, instance);
+    }
+    instance.lastSeen = System.currentTimeMillis();
+    if (!instance.shards.keySet().equals(shards.keySet())
+        || !instance.methods.equals(methods)
+        || !instance.batchMethods.equals(batchMethods)) {
+      instance.shards = shards;
+      instance.methods = methods;
+      instance.batchMethods = batchMethods;
+      rebuildMethodIndex();
+    }
+  }
+
+  private void expireInstances() {
+    final long now = System.currentTimeMillis();
+    boolean expired = false;
+    for (Iterator<Instance> it = instances.values().iterator(); it.hasNext(); ) {
+      Instance instance = it.next();
+      if (now - instance.lastSeen > INSTANCE_EXPIRY_MS) {
+        LOG.debug("Registry instance {} expired", instance.id);
+        it.remove();
+        expired = true;
+      }
+    }
+    if (expired) {
+      rebuildMethodIndex();
+    }
+  }
+
+  private void rebuildMethodIndex() {
+    shardedMethods.clear();
+    batchMethods.clear();
+    // a batch may be routed to any instance serving the method, so all of them must take it
+    final Set<String> plainMethods = new HashSet<>();
+    instances.values().forEach(instance -> {
+      instance.shards.forEach((method, key) ->
+          shardedMethods.computeIfAbsent(method, m -> new ShardedMethod(key)).instances
+              .add(instance.id));
+      batchMethods.addAll(instance.batchMethods);
+      instance.methods.stream()
+          .filter(method -> !instance.batchMethods.contains(method))
+          .forEach(plainMethods::add);
+    });
+    batchMethods.removeAll(plainMethods);
+  }
+
+  private static class Instance {
+
+    private final String id;
+    private Map<String, JsonRpcShardKey> shards = new HashMap<>();
+    private Set<String> methods = new HashSet<>();
+    private Set<String> batchMethods = new HashSet<>();
+    private long lastSeen;
+
+    private Instance(String id) {
+      this.id = id;
+    }
+  }
+
+  private static class ShardedMethod {
+
+    private final JsonRpcShardKey key;
+    private final List<String> instances = new ArrayList<>();
+
+    private ShardedMethod(JsonRpcShardKey key) {
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.lsoftware.jsonrpc;
+
+/**
+ * Tracing done by the {@link JsonRpcMessageProcessor}. Sampled requests get a trace id that is
+ * propagated to the methods and recorded in the JFR events and logs of every stage; requests
+ * slower than the threshold are logged with the duration of their stages.
+ */
+public class JsonRpcTracingOptions {
+
+  public static final double DEFAULT_SAMPLE_RATE = 0.01;
+  public static final long DEFAULT_SLOW_REQUEST_THRESHOLD_MS = 1000;
+
+  private double sampleRate = DEFAULT_SAMPLE_RATE;
+  private long slowRequestThresholdMs = DEFAULT_SLOW_REQUEST_THRESHOLD_MS;
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Fraction of the requests that get a trace id, between 0 and 1. Requests that arrive with a
+   * trace id are always traced.
+   */
+  public JsonRpcTracingOptions setSampleRate(double sampleRate) {
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+    }
+    this.sampleRate = sampleRate;
+    return this;
+  }
+
+  public long getSlowRequestThresholdMs() {
+    return slowRequestThresholdMs;
+  }
+
+  /**
+   * Requests taking longer than this are logged as slow, 0 disables the slow request log.
+   */
+  public JsonRpcTracingOptions setSlowRequestThresholdMs(long slowRequestThresholdMs) {
+    this.slowRequestThresholdMs = slowRequestThresholdMs;
+    return this;
+  }
+}
@@ -1,44 +1,112 @@
 package com.lsoftware.jsonrpc;
 
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
 import com.lsoftware.jsonrpc.http.HttpJsonRpcServer;
 import com.lsoftware.jsonrpc.methods.MathMethodsGroup;
 import com.lsoftware.jsonrpc.methods.TimeMethod;
+import com.lsoftware.jsonrpc.methods.TimeTicker;
 import com.lsoftware.jsonrpc.websockets.WebSocketJsonRpcServer;
+import com.lsoftware.jsonrpc.websockets.WebSocketSubscriptionOptions;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class Main {
 
   private static final Logger LOG = LoggerFactory.getLogger(Main.class);
+  private static final long SHUTDOWN_GRACE_MS = 5000;
+  private static final String WARM_UP_REQUEST =
+      "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"add\", \"params\": [2, 3]}";
 
   public static void main(String[] args) {
     LOG.info("Starting up...");
 
-    Vertx vertx = Vertx.vertx();
+    if (Boolean.getBoolean("jsonrpc.clustered")) {
+      Vertx.clusteredVertx(new VertxOptions())
+          .onSuccess(vertx -> deploy(vertx, JsonRpcDispatchMode.CLUSTERED))
+          .onFailure(e -> LOG.error("Failed to join the cluster", e));
+    } else {
+      deploy(Vertx.vertx(), JsonRpcDispatchMode.PER_METHOD);
+    }
+  }
 
-    Future<String> jsonRpcProcessorFuture = vertx.deployVerticle(new JsonRpcMessageProcessor());
+  private static void deploy(Vertx vertx, JsonRpcDispatchMode dispatchMode) {
+    // the processor and the registry are deployed concurrently, and the registry's methods are
+    // introspected meanwhile
+    Future<String> jsonRpcProcessorFuture = vertx.deployVerticle(
+        new JsonRpcMessageProcessor(new JsonRpcProcessorOptions().setDispatchMode(dispatchMode)));
+    Future<String> timeTickerFuture = vertx.deployVerticle(new TimeTicker());
 
-    JsonRpcMethodRegistry methodRegistry = new JsonRpcMethodRegistry();
+    JsonRpcMethodRegistry methodRegistry = new JsonRpcMethodRegistry(dispatchMode);
     methodRegistry.addMethodGroup(new MathMethodsGroup());
     methodRegistry.addMethod(new TimeMethod());
     Future<String> methodRegistryFuture = vertx.deployVerticle(methodRegistry);
 
-    Future<String> httpServerFuture = vertx.deployVerticle(new HttpJsonRpcServer());
-    Future<String> websocketServerFuture = vertx.deployVerticle(new WebSocketJsonRpcServer());
+    // the transports only bind once the methods have handlers, otherwise the first calls would be
+    // answered with "method not found"
+    Future<CompositeFuture> dispatchReady =
+        CompositeFuture.all(jsonRpcProcessorFuture, methodRegistryFuture);
+    Future<String> httpServerFuture =
+        dispatchReady.compose(v -> vertx.deployVerticle(new HttpJsonRpcServer()));
+    Future<String> websocketServerFuture = dispatchReady.compose(v -> vertx.deployVerticle(
+        new WebSocketJsonRpcServer(new WebSocketSubscriptionOptions().addTopic(TimeTicker.TOPIC))));
+
+    // load the Jackson classes used by the first request off the event loops
+    jsonRpcProcessorFuture.onSuccess(id -> vertx.executeBlocking(promise -> {
+      final JsonRpcRequest request = JsonRpcCodec.decodeRequest(WARM_UP_REQUEST);
+      promise.complete(JsonRpcCodec.encodeResponse(new JsonRpcSuccessResponse(request.getId(), 0)));
+    }, false));
 
     CompositeFuture future = CompositeFuture.join(
         jsonRpcProcessorFuture,
         methodRegistryFuture,
         httpServerFuture,
-        websocketServerFuture);
+        websocketServerFuture,
+        timeTickerFuture);
     future.onSuccess((f) -> LOG.info("Startup complete!"));
 
     Runtime.getRuntime().addShutdownHook(new Thread(() -> {
       LOG.info("Shutting down...");
-      vertx.close().onComplete((result) -> LOG.info("Shutdown complete!"));
+      final long drainTimeoutMs =
+          Long.getLong("jsonrpc.drainTimeoutMs", JsonRpcDrain.DEFAULT_DRAIN_TIMEOUT_MS);
+      final CountDownLatch shutdown = new CountDownLatch(1);
+      JsonRpcDrain.get(vertx).start(drainTimeoutMs);
+
+      // transports first, so that their calls in flight can still be answered
+      undeploy(vertx, httpServerFuture, websocketServerFuture, timeTickerFuture)
+          .compose(v -> undeploy(vertx, jsonRpcProcessorFuture))
+          .compose(v -> undeploy(vertx, methodRegistryFuture))
+          .compose(v -> vertx.close(), e -> vertx.close())
+          .onComplete((result) -> {
+            LOG.info("Shutdown complete!");
+            shutdown.countDown();
+          });
+
+      try {
+        shutdown.await(drainTimeoutMs + SHUTDOWN_GRACE_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
     }));
   }
+
+  @SafeVarargs
+  private static Future<Void> undeploy(Vertx vertx, Future<String>... deployments) {
+    List<Future> undeployed = new ArrayList<>();
+    for (Future<String> deployment : deployments) {
+      if (deployment.succeeded()) {
+        undeployed.add(vertx.undeploy(deployment.result()));
+      }
+    }
+    return CompositeFuture.join(undeployed).mapEmpty();
+  }
 }
@@ -0,0 +1,38 @@
+package com.lsoftware.jsonrpc.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Method that can process every call made to it within a JSON-RPC batch in a single invocation,
+ * e.g. to run one backend query for the whole batch instead of one per call.
+ */
+public interface JsonRpcBatchMethod extends JsonRpcMethod {
+
+  String JSONRPC_BATCH_EVENTBUS_ADDRESS_SUFFIX = ".batch";
+
+  /**
+   * Processes the requests of a batch that target this method. Results must be returned in the same
+   * order as the requests.
+   */
+  List<JsonRpcResult> processBatch(List<JsonRpcRequest> requests);
+
+  @Override
+  default JsonRpcResult process(List<?> params) {
+    return process(new JsonRpcRequest(null, name(), params));
+  }
+
+  @Override
+  default JsonRpcResult process(JsonRpcRequest request) {
+    return processBatch(Collections.singletonList(request)).get(0);
+  }
+
+  default String batchEventBusAddress() {
+    return batchEventBusAddress(name());
+  }
+
+  static String batchEventBusAddress(String methodName) {
+    return JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + methodName
+        + JSONRPC_BATCH_EVENTBUS_ADDRESS_SUFFIX;
+  }
+}
@@ -0,0 +1,20 @@
+package com.lsoftware.jsonrpc.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Exposes a plain Java method as a JSON-RPC method. Params are decoded into the declared parameter
+ * types, either by position or by name (see {@link JsonRpcParam}).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface JsonRpcBinding {
+
+  /**
+   * JSON-RPC method name.
+   */
+  String value();
+}
@@ -0,0 +1,152 @@
+package com.lsoftware.jsonrpc.api;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.EncodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.DatabindCodec;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the JSON-RPC model with readers and writers built once, instead of looking
+ * them up on the shared {@link DatabindCodec#mapper()} on every call. The mapper they are built from
+ * is a copy of the Vert.x one, so that Vert.x types are still supported, with the Blackbird module
+ * binding the model through generated accessors rather than reflection.
+ *
+ * <p>Errors are reported like {@link io.vertx.core.json.Json} does, with a {@link DecodeException}
+ * or an {@link EncodeException}.
+ */
+public final class JsonRpcCodec {
+
+  private static final ObjectMapper MAPPER = DatabindCodec.mapper().copy()
+      .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+      .registerModule(new BlackbirdModule());
+
+  private static final ObjectReader REQUEST_READER = MAPPER.readerFor(JsonRpcRequest.class);
+  private static final ObjectReader REQUESTS_READER = MAPPER.readerFor(JsonRpcRequest[].class);
+  private static final ObjectReader RESULT_READER = MAPPER.readerFor(JsonRpcResult.class);
+  private static final ObjectReader RESULTS_READER = MAPPER.readerFor(JsonRpcResult[].class);
+
+  // typed writers are statically typed, so only for exact classes: a writer for a base class (or a
+  // list of it) would drop the subclass properties
+  private static final ObjectWriter REQUEST_WRITER = MAPPER.writerFor(JsonRpcRequest.class);
+  private static final ObjectWriter REQUESTS_WRITER =
+      MAPPER.writerFor(listOf(JsonRpcRequest.class));
+  private static final ObjectWriter RESULT_WRITER = MAPPER.writerFor(JsonRpcResult.class);
+  private static final ObjectWriter RESULTS_WRITER = MAPPER.writerFor(listOf(JsonRpcResult.class));
+  private static final ObjectWriter SUCCESS_WRITER =
+      MAPPER.writerFor(JsonRpcSuccessResponse.class);
+  private static final ObjectWriter ERROR_WRITER = MAPPER.writerFor(JsonRpcErrorResponse.class);
+  private static final ObjectWriter MAP_WRITER = MAPPER.writerFor(Map.class);
+  private static final ObjectWriter WRITER = MAPPER.writer();
+
+  private JsonRpcCodec() {
+  }
+
+  public static JsonRpcRequest decodeRequest(String json) {
+    return decode(REQUEST_READER, json);
+  }
+
+  /**
+   * Binds a request already parsed by Vert.x, e.g. an element of a batch.
+   */
+  public static JsonRpcRequest decodeRequest(JsonObject json) {
+    try {
+      final TokenBuffer buffer = new TokenBuffer(MAPPER, false);
+      MAP_WRITER.writeValue(buffer, json.getMap());
+      return REQUEST_READER.readValue(buffer.asParser());
+    } catch (IOException e) {
+      throw new DecodeException("Failed to decode:" + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Id of a single call, or null for batches and messages that aren't a call. Used to answer a
+   * message whose call failed before it could be answered by the processor.
+   */
+  public static String decodeRequestId(String json) {
+    try {
+      return decodeRequest(json).getId();
+    } catch (DecodeException e) {
+      return null;
+    }
+  }
+
+  public static JsonRpcRequest[] decodeRequests(String json) {
+    return decode(REQUESTS_READER, json);
+  }
+
+  public static JsonRpcResult decodeResult(String json) {
+    return decode(RESULT_READER, json);
+  }
+
+  public static JsonRpcResult[] decodeResults(String json) {
+    return decode(RESULTS_READER, json);
+  }
+
+  public static String encodeRequest(JsonRpcRequest request) {
+    return encode(REQUEST_WRITER, request);
+  }
+
+  public static String encodeRequests(List<JsonRpcRequest> requests) {
+    return encode(REQUESTS_WRITER, requests);
+  }
+
+  public static String encodeResult(JsonRpcResult result) {
+    return encode(RESULT_WRITER, result);
+  }
+
+  public static String encodeResults(List<JsonRpcResult> results) {
+    return encode(RESULTS_WRITER, results);
+  }
+
+  public static String encodeResponse(JsonRpcResponse response) {
+    if (response.getClass() == JsonRpcSuccessResponse.class) {
+      return encode(SUCCESS_WRITER, response);
+    }
+    if (response.getClass() == JsonRpcErrorResponse.class) {
+      return encode(ERROR_WRITER, response);
+    }
+    return encode(WRITER, response);
+  }
+
+  public static String encodeResponses(List<?> responses) {
+    return encode(WRITER, responses);
+  }
+
+  /**
+   * Encodes any other value, e.g. a topic event, with the same configuration as the model.
+   */
+  public static String encode(Object value) {
+    return encode(WRITER, value);
+  }
+
+  private static <T> T decode(ObjectReader reader, String json) {
+    try {
+      return reader.readValue(json);
+    } catch (IOException e) {
+      throw new DecodeException("Failed to decode:" + e.getMessage(), e);
+    }
+  }
+
+  private static String encode(ObjectWriter writer, Object value) {
+    try {
+      return writer.writeValueAsString(value);
+    } catch (IOException e) {
+      throw new EncodeException("Failed to encode as JSON: " + e.getMessage());
+    }
+  }
+
+  private static JavaType listOf(Class<?> elementType) {
+    return MAPPER.getTypeFactory().constructCollectionType(List.class, elementType);
+  }
+}
@@ -10,6 +10,22 @@ public interface JsonRpcMethod {
 
   JsonRpcResult process(List<?> params);
 
+  /**
+   * Entry point used by the registry. Methods that understand by-name params override this one;
+   * everything else only sees the positional view of the request params.
+   */
+  default JsonRpcResult process(JsonRpcRequest request) {
+    return process(request.getParams());
+  }
+
+  /**
+   * Methods that keep per-key state return the param their calls are sharded by, see {@link
+   * JsonRpcShardKey}. Null by default: calls are spread between registry instances.
+   */
+  default JsonRpcShardKey shardKey() {
+    return null;
+  }
+
   default String eventBusAddress() {
     return JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + name();
   }
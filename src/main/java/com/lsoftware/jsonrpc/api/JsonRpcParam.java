@@ -0,0 +1,21 @@
+package com.lsoftware.jsonrpc.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Name used to bind a parameter of a {@link JsonRpcBinding} method when the request params are sent
+ * as a JSON object. Not needed when compiling with {@code -parameters}, unless the parameter is
+ * optional: a named param that is missing from the request is rejected unless marked optional.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface JsonRpcParam {
+
+  String value();
+
+  /** Whether the param may be left out of the request, in which case {@code null} is bound. */
+  boolean optional() default false;
+}
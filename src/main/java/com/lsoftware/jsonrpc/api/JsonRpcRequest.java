@@ -1,7 +1,10 @@
 package com.lsoftware.jsonrpc.api;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.StringJoiner;
 
 public class JsonRpcRequest {
@@ -9,7 +12,8 @@ public class JsonRpcRequest {
   private String jsonrpc;
   private String id;
   private String method;
-  private List<?> params;
+  @JsonProperty("params")
+  private Object params;
 
   public JsonRpcRequest(String id, String method, List<?> params) {
     this.id = id;
@@ -17,9 +21,33 @@ public class JsonRpcRequest {
     this.params = params;
   }
 
+  public JsonRpcRequest(String id, String method, Map<String, ?> params) {
+    this.id = id;
+    this.method = method;
+    this.params = params;
+  }
+
   JsonRpcRequest() {
   }
 
+  // package-private setters for databinding, which unlike fields get generated accessors
+  void setJsonrpc(String jsonrpc) {
+    this.jsonrpc = jsonrpc;
+  }
+
+  void setId(String id) {
+    this.id = id;
+  }
+
+  void setMethod(String method) {
+    this.method = method;
+  }
+
+  @JsonProperty("params")
+  void setParams(Object params) {
+    this.params = params;
+  }
+
   public String getJsonrpc() {
     return jsonrpc;
   }
@@ -28,8 +56,28 @@ public class JsonRpcRequest {
     return method;
   }
 
+  /**
+   * Positional view of the params. By-name params (and any other single value) are wrapped in a
+   * singleton list, so methods written against positional params keep working unchanged.
+   */
+  @JsonIgnore
   public List<?> getParams() {
-    return params;
+    if (params == null || params instanceof List) {
+      return (List<?>) params;
+    }
+    return Collections.singletonList(params);
+  }
+
+  /**
+   * By-name view of the params, or null when the params were not sent as a JSON object.
+   */
+  @JsonIgnore
+  @SuppressWarnings("unchecked")
+  public Map<String, ?> getNamedParams() {
+    if (params instanceof Map) {
+      return (Map<String, ?>) params;
+    }
+    return null;
   }
 
   public String getId() {
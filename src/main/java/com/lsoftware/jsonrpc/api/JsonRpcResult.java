@@ -27,6 +27,19 @@ public class JsonRpcResult {
    JsonRpcResult() {
   }
 
+  // package-private setters for databinding, which unlike fields get generated accessors
+  void setSuccess(boolean success) {
+    this.success = success;
+  }
+
+  void setResult(Object result) {
+    this.result = result;
+  }
+
+  void setError(JsonRpcError error) {
+    this.error = error;
+  }
+
   public boolean isSuccess() {
     return success;
   }
@@ -0,0 +1,59 @@
+package com.lsoftware.jsonrpc.api;
+
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The param the calls of a sharded method are routed by: calls with the same key value always go to
+ * the same registry instance, which can then keep per-key state without sharing it between threads.
+ * Calls without the param are routed like any other call.
+ */
+public class JsonRpcShardKey {
+
+  private final int position;
+  private final String name;
+
+  private JsonRpcShardKey(int position, String name) {
+    if (position < 0) {
+      throw new IllegalArgumentException("position must not be negative");
+    }
+    this.position = position;
+    this.name = name;
+  }
+
+  /**
+   * Key taken from the positional param at the given position.
+   */
+  public static JsonRpcShardKey param(int position) {
+    return new JsonRpcShardKey(position, null);
+  }
+
+  /**
+   * Key taken from the positional param at the given position, or from the named param with the
+   * given name when the params are sent by name.
+   */
+  public static JsonRpcShardKey param(int position, String name) {
+    return new JsonRpcShardKey(position, name);
+  }
+
+  public static JsonRpcShardKey fromJson(JsonObject json) {
+    return new JsonRpcShardKey(json.getInteger("position"), json.getString("name"));
+  }
+
+  /**
+   * Returns the key of the request, or null if it doesn't have the key param.
+   */
+  public Object extract(JsonRpcRequest request) {
+    final Map<String, ?> namedParams = request.getNamedParams();
+    if (namedParams != null) {
+      return name == null ? null : namedParams.get(name);
+    }
+    final List<?> params = request.getParams();
+    return params == null || position >= params.size() ? null : params.get(position);
+  }
+
+  public JsonObject toJson() {
+    return new JsonObject().put("position", position).put("name", name);
+  }
+}
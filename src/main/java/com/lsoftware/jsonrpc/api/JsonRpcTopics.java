@@ -0,0 +1,30 @@
+package com.lsoftware.jsonrpc.api;
+
+import io.vertx.core.eventbus.EventBus;
+
+/**
+ * Topics WebSocket clients can subscribe to. Events published to a topic are pushed to its
+ * subscribers as JSON-RPC notifications:
+ *
+ * <pre>
+ * {"jsonrpc": "2.0", "method": "subscription", "params": {"subscription": "...", "result": event}}
+ * </pre>
+ */
+public final class JsonRpcTopics {
+
+  public static final String JSONRPC_TOPIC_EVENTBUS_ADDRESS_PREFIX = "jsonrpc.topic.";
+
+  private JsonRpcTopics() {
+  }
+
+  public static String eventBusAddress(String topic) {
+    return JSONRPC_TOPIC_EVENTBUS_ADDRESS_PREFIX + topic;
+  }
+
+  /**
+   * Publishes an event, encoded once as JSON, to all the subscribers of the topic.
+   */
+  public static void publish(EventBus eventBus, String topic, Object event) {
+    eventBus.publish(eventBusAddress(topic), JsonRpcCodec.encode(event));
+  }
+}
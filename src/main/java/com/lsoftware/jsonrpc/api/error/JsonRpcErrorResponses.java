@@ -10,6 +10,11 @@ public class JsonRpcErrorResponses {
     return new JsonRpcErrorResponse(null, new JsonRpcError(-32600, "Invalid Request"));
   }
 
+  public static JsonRpcErrorResponse batchTooLarge(int maxBatchLength) {
+    return new JsonRpcErrorResponse(null, new JsonRpcError(-32600, "Invalid Request",
+        "Batch exceeds the maximum length of " + maxBatchLength));
+  }
+
   public static JsonRpcErrorResponse methodNotFound(String id) {
     return new JsonRpcErrorResponse(id, new JsonRpcError(-32601, "Method not found"));
   }
@@ -19,6 +24,15 @@ public class JsonRpcErrorResponses {
         new JsonRpcError(-32602, "Invalid method parameter(s)", data));
   }
 
+  public static JsonRpcErrorResponse limitExceeded(String id) {
+    return new JsonRpcErrorResponse(id, new JsonRpcError(-32005, "Limit exceeded"));
+  }
+
+  public static JsonRpcErrorResponse methodUnavailable(String id) {
+    return new JsonRpcErrorResponse(id,
+        new JsonRpcError(-32006, "Method unavailable", "Circuit breaker open"));
+  }
+
   public static JsonRpcErrorResponse internalError(String id, Object data) {
     return new JsonRpcErrorResponse(id, new JsonRpcError(-32603, "Internal JSON-RPC error", data));
   }
@@ -0,0 +1,49 @@
+package com.lsoftware.jsonrpc.http;
+
+import com.lsoftware.jsonrpc.JsonRpcDrain;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Reports the event loop lag and the calls in flight. Answers 503 when an event loop lags behind
+ * more than the threshold or the instance is draining, so load balancers stop sending traffic to
+ * it.
+ */
+class HttpHealthHandler implements Handler<HttpServerRequest> {
+
+  static final String HEALTH_PATH = "/health";
+
+  private final JsonRpcMetrics metrics;
+  private final JsonRpcDrain drain;
+  private final long maxEventLoopLagMs;
+
+  HttpHealthHandler(Vertx vertx, long maxEventLoopLagMs) {
+    this.metrics = JsonRpcMetrics.get(vertx);
+    this.drain = JsonRpcDrain.get(vertx);
+    this.maxEventLoopLagMs = maxEventLoopLagMs;
+  }
+
+  @Override
+  public void handle(HttpServerRequest request) {
+    final String status;
+    if (drain.isDraining()) {
+      status = "DRAINING";
+    } else if (metrics.eventLoopLag().maxLagMs() > maxEventLoopLagMs) {
+      status = "DOWN";
+    } else {
+      status = "UP";
+    }
+    final boolean up = "UP".equals(status);
+    final JsonObject health = new JsonObject()
+        .put("status", status)
+        .mergeIn(metrics.toJson());
+
+    request.response()
+        .setStatusCode(up ? 200 : 503)
+        .putHeader("Content-Type", "application/json")
+        .end(health.encode());
+  }
+}
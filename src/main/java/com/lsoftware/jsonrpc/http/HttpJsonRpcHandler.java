@@ -1,33 +1,114 @@
 package com.lsoftware.jsonrpc.http;
 
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_CLIENT_HEADER;
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_CONNECTION_HEADER;
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PRIORITY_HEADER;
 import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
 
+import com.lsoftware.jsonrpc.JsonRpcDrain;
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcResponseWriteEvent;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcTracing;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.http.HttpServerRequest;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class HttpJsonRpcHandler implements Handler<HttpServerRequest> {
 
+  static final String PRIORITY_HEADER = "JsonRpc-Priority";
+
   private final Vertx vertx;
+  private final String clientIdHeader;
+  private final JsonRpcDrain drain;
+  private int inFlight;
 
-  HttpJsonRpcHandler(Vertx vertx) {
+  HttpJsonRpcHandler(Vertx vertx, String clientIdHeader) {
     this.vertx = vertx;
+    this.clientIdHeader = clientIdHeader;
+    this.drain = JsonRpcDrain.get(vertx);
+  }
+
+  /**
+   * Requests received and not answered yet.
+   */
+  int inFlight() {
+    return inFlight;
   }
 
   @Override
   public void handle(HttpServerRequest request) {
+    if (drain.isDraining()) {
+      // keep-alive clients reconnect, to an instance that isn't going away
+      request.response()
+          .setStatusCode(503)
+          .putHeader("Connection", "close")
+          .end();
+      return;
+    }
+
+    // in flight from now on, the body may take a while to arrive
+    inFlight++;
+    final AtomicBoolean answered = new AtomicBoolean();
+    final Runnable completed = () -> {
+      if (answered.compareAndSet(false, true)) {
+        inFlight--;
+      }
+    };
+    request.exceptionHandler(e -> completed.run());
+    request.response().closeHandler(v -> completed.run());
+
+    DeliveryOptions options = new DeliveryOptions()
+        .addHeader(JSONRPC_CONNECTION_HEADER, String.valueOf(request.remoteAddress()))
+        .addHeader(JSONRPC_CLIENT_HEADER, clientId(request));
+    String traceId = JsonRpcTracing.traceIdFromTraceparent(request.headers());
+    if (traceId != null) {
+      options.addHeader(JsonRpcTracing.TRACE_ID_HEADER, traceId);
+    }
+
+    String priority = request.getHeader(PRIORITY_HEADER);
+    if (priority != null) {
+      options.addHeader(JSONRPC_PRIORITY_HEADER, priority);
+    }
+
     request.bodyHandler(buffer -> {
       vertx.eventBus()
-          .request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, buffer.toString(), ar -> {
-            if (ar.succeeded()) {
-              String body = (String) ar.result().body();
-              request.response()
-                  .putHeader("Content-Type", "application/json")
-                  .end(body);
-            } else {
-              request.response().setStatusCode(500).end(ar.cause().getMessage());
+          .request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, buffer.toString(), options, ar -> {
+            completed.run();
+            if (request.response().closed()) {
+              return;
+            }
+            if (drain.isDraining()) {
+              request.response().putHeader("Connection", "close");
+            }
+            // the processor answers every call, this only fails if it times out or isn't deployed
+            String body = ar.succeeded()
+                ? (String) ar.result().body()
+                : JsonRpcCodec.encodeResponse(JsonRpcErrorResponses.internalError(
+                    JsonRpcCodec.decodeRequestId(buffer.toString()), ar.cause().getMessage()));
+            JsonRpcResponseWriteEvent event = new JsonRpcResponseWriteEvent();
+            event.begin();
+            request.response()
+                .putHeader("Content-Type", "application/json")
+                .end(body);
+            if (event.shouldCommit()) {
+              event.transport = "http";
+              event.chars = body.length();
+              event.commit();
             }
           });
     });
   }
+
+  private String clientId(HttpServerRequest request) {
+    if (clientIdHeader != null) {
+      String clientId = request.getHeader(clientIdHeader);
+      if (clientId != null) {
+        return clientId;
+      }
+    }
+    return request.remoteAddress() == null ? "" : request.remoteAddress().host();
+  }
 }
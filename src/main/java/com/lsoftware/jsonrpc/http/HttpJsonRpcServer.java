@@ -1,7 +1,9 @@
 package com.lsoftware.jsonrpc.http;
 
+import com.lsoftware.jsonrpc.JsonRpcDrain;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
 import org.slf4j.Logger;
@@ -10,8 +12,23 @@ import org.slf4j.LoggerFactory;
 public class HttpJsonRpcServer extends AbstractVerticle {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpJsonRpcServer.class);
+  private static final long HEALTH_MAX_EVENT_LOOP_LAG_MS = 1000;
 
+  private final String clientIdHeader;
   private HttpServer httpServer;
+  private HttpJsonRpcHandler jsonRpcHandler;
+
+  public HttpJsonRpcServer() {
+    this(null);
+  }
+
+  /**
+   * @param clientIdHeader request header identifying the client for rate limiting, the remote host
+   *     is used when absent
+   */
+  public HttpJsonRpcServer(String clientIdHeader) {
+    this.clientIdHeader = clientIdHeader;
+  }
 
   @Override
   public void start(Promise<Void> startPromise) {
@@ -19,7 +36,17 @@ public class HttpJsonRpcServer extends AbstractVerticle {
         .setPort(8080);
 
     httpServer = vertx.createHttpServer(options);
-    httpServer.requestHandler(new HttpJsonRpcHandler(vertx));
+    jsonRpcHandler = new HttpJsonRpcHandler(vertx, clientIdHeader);
+    HttpHealthHandler healthHandler =
+        new HttpHealthHandler(vertx, HEALTH_MAX_EVENT_LOOP_LAG_MS);
+    httpServer.requestHandler(request -> {
+      if (request.method() == HttpMethod.GET
+          && HttpHealthHandler.HEALTH_PATH.equals(request.path())) {
+        healthHandler.handle(request);
+      } else {
+        jsonRpcHandler.handle(request);
+      }
+    });
 
     httpServer.listen(res -> {
       if (res.succeeded()) {
@@ -31,8 +58,12 @@ public class HttpJsonRpcServer extends AbstractVerticle {
     });
   }
 
+  /**
+   * When draining, waits for the requests in flight to be answered before closing the server.
+   */
   public void stop(Promise<Void> endFuture) {
-    httpServer.close(endFuture);
+    JsonRpcDrain.get(vertx).awaitIdle("HTTP requests", jsonRpcHandler::inFlight)
+        .onComplete(v -> httpServer.close(endFuture));
   }
 
 }
@@ -0,0 +1,45 @@
+package com.lsoftware.jsonrpc.methods;
+
+import com.lsoftware.jsonrpc.api.JsonRpcBinding;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Method group whose JSON-RPC methods are the {@link JsonRpcBinding} annotated methods declared on
+ * the group itself. Bindings are resolved once, when the group is created.
+ */
+public abstract class AnnotatedJsonRpcMethodGroup implements JsonRpcMethodGroup {
+
+  private final Collection<JsonRpcMethod> methods;
+
+  protected AnnotatedJsonRpcMethodGroup() {
+    this.methods = Collections.unmodifiableList(bind(this));
+  }
+
+  @Override
+  public Collection<JsonRpcMethod> methods() {
+    return methods;
+  }
+
+  static List<JsonRpcMethod> bind(Object target) {
+    List<JsonRpcMethod> methods = new ArrayList<>();
+    for (Class<?> c = target.getClass(); c != Object.class; c = c.getSuperclass()) {
+      for (Method method : c.getDeclaredMethods()) {
+        JsonRpcBinding binding = method.getAnnotation(JsonRpcBinding.class);
+        if (binding == null) {
+          continue;
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+          throw new IllegalArgumentException("Can't bind static method " + method);
+        }
+        methods.add(new TypedJsonRpcMethod(binding.value(), target, method));
+      }
+    }
+    return methods;
+  }
+}
@@ -1,25 +1,23 @@
 package com.lsoftware.jsonrpc.methods;
 
-import com.lsoftware.jsonrpc.api.JsonRpcMethod;
-import java.util.Collection;
-import java.util.HashSet;
+import com.lsoftware.jsonrpc.api.JsonRpcBinding;
+import com.lsoftware.jsonrpc.api.JsonRpcParam;
 
-public class MathMethodsGroup implements JsonRpcMethodGroup {
-
-  private final Collection<JsonRpcMethod> methods = new HashSet<>();
-
-  public MathMethodsGroup() {
-    methods.add(new AddMethod());
-    methods.add(new SubtractMethod());
-  }
+public class MathMethodsGroup extends AnnotatedJsonRpcMethodGroup {
 
   @Override
   public String name() {
     return "math";
   }
 
-  @Override
-  public Collection<JsonRpcMethod> methods() {
-    return methods;
+  @JsonRpcBinding("add")
+  public int add(@JsonRpcParam("a") int a, @JsonRpcParam("b") int b) {
+    return a + b;
+  }
+
+  @JsonRpcBinding("subtract")
+  public int subtract(@JsonRpcParam("minuend") int minuend,
+      @JsonRpcParam("subtrahend") int subtrahend) {
+    return minuend - subtrahend;
   }
 }
@@ -0,0 +1,122 @@
+package com.lsoftware.jsonrpc.methods;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.json.jackson.DatabindCodec;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Converts a decoded JSON value into the declared type of a method parameter. Decoders are resolved
+ * once, when the method is bound, so a call only pays for the conversion itself.
+ */
+@FunctionalInterface
+interface ParamDecoder {
+
+  Object decode(Object value);
+
+  static ParamDecoder forType(Type type) {
+    if (type == int.class || type == Integer.class) {
+      return nullable(type, ParamDecoder::toInt);
+    }
+    if (type == long.class || type == Long.class) {
+      return nullable(type, ParamDecoder::toLong);
+    }
+    if (type == double.class || type == Double.class) {
+      return nullable(type, value -> toNumber(value).doubleValue());
+    }
+    if (type == float.class || type == Float.class) {
+      return nullable(type, value -> toNumber(value).floatValue());
+    }
+    if (type == boolean.class || type == Boolean.class) {
+      return nullable(type, value -> {
+        if (value instanceof Boolean) {
+          return value;
+        }
+        throw new InvalidParamException("expected a boolean but got " + value);
+      });
+    }
+    if (type == String.class) {
+      return nullable(type, value -> {
+        if (value instanceof String) {
+          return value;
+        }
+        throw new InvalidParamException("expected a string but got " + value);
+      });
+    }
+    if (type == Object.class) {
+      return value -> value;
+    }
+
+    final ObjectMapper mapper = DatabindCodec.mapper();
+    final JavaType javaType = mapper.constructType(type);
+    return nullable(type, value -> {
+      if (javaType.getRawClass().isInstance(value) && !javaType.isContainerType()) {
+        return value;
+      }
+      try {
+        return mapper.convertValue(value, javaType);
+      } catch (IllegalArgumentException e) {
+        throw new InvalidParamException(
+            "expected " + javaType.getRawClass().getSimpleName() + " but got " + value);
+      }
+    });
+  }
+
+  static ParamDecoder nullable(Type type, ParamDecoder decoder) {
+    final boolean primitive = type instanceof Class && ((Class<?>) type).isPrimitive();
+    return value -> {
+      if (value == null) {
+        if (primitive) {
+          throw new InvalidParamException("missing value for " + type.getTypeName());
+        }
+        return null;
+      }
+      return decoder.decode(value);
+    };
+  }
+
+  static Number toNumber(Object value) {
+    if (value instanceof Number) {
+      return (Number) value;
+    }
+    throw new InvalidParamException("expected a number but got " + value);
+  }
+
+  static Object toInt(Object value) {
+    long longValue = (Long) toLong(value);
+    if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+      throw new InvalidParamException("integer out of range: " + value);
+    }
+    return (int) longValue;
+  }
+
+  static Object toLong(Object value) {
+    if (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte) {
+      return ((Number) value).longValue();
+    }
+    try {
+      if (value instanceof BigInteger) {
+        return ((BigInteger) value).longValueExact();
+      }
+      if (value instanceof BigDecimal) {
+        return ((BigDecimal) value).longValueExact();
+      }
+      if (value instanceof Double || value instanceof Float) {
+        return new BigDecimal(value.toString()).longValueExact();
+      }
+    } catch (ArithmeticException e) {
+      throw new InvalidParamException("expected an integer but got " + value);
+    }
+    throw new InvalidParamException("expected an integer but got " + value);
+  }
+
+  class InvalidParamException extends RuntimeException {
+
+    InvalidParamException(String message) {
+      super(message, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.lsoftware.jsonrpc.methods;
+
+import com.lsoftware.jsonrpc.api.JsonRpcTopics;
+import io.vertx.core.AbstractVerticle;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Publishes the current UTC time to the {@code time} topic every second, for WebSocket clients that
+ * would otherwise poll the {@code time} method.
+ */
+public class TimeTicker extends AbstractVerticle {
+
+  public static final String TOPIC = "time";
+  private static final long INTERVAL_MS = 1000;
+
+  @Override
+  public void start() {
+    vertx.setPeriodic(INTERVAL_MS, t -> JsonRpcTopics.publish(vertx.eventBus(), TOPIC,
+        LocalDateTime.now(ZoneId.of("UTC")).format(DateTimeFormatter.ISO_DATE_TIME)));
+  }
+}
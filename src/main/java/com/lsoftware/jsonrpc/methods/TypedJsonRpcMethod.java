@@ -0,0 +1,153 @@
+package com.lsoftware.jsonrpc.methods;
+
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcParam;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.error.InvalidParamsJsonRpcError;
+import com.lsoftware.jsonrpc.methods.ParamDecoder.InvalidParamException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link JsonRpcMethod} backed by a Java method with a typed signature. The target is invoked
+ * through a {@link MethodHandle} resolved at bind time, and params that can't be decoded into the
+ * declared types are rejected with an invalid params error without invoking the target.
+ */
+class TypedJsonRpcMethod implements JsonRpcMethod {
+
+  private final String name;
+  private final MethodHandle invoker;
+  private final String[] paramNames;
+  private final boolean[] optional;
+  private final ParamDecoder[] decoders;
+
+  TypedJsonRpcMethod(String name, Object target, Method method) {
+    this.name = name;
+    this.invoker = invoker(target, method);
+
+    Parameter[] parameters = method.getParameters();
+    this.paramNames = new String[parameters.length];
+    this.optional = new boolean[parameters.length];
+    this.decoders = new ParamDecoder[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      paramNames[i] = paramName(parameters[i]);
+      optional[i] = isOptional(parameters[i]);
+      decoders[i] = ParamDecoder.forType(parameters[i].getParameterizedType());
+    }
+  }
+
+  @Override
+  public String name() {
+    return name;
+  }
+
+  @Override
+  public JsonRpcResult process(List<?> params) {
+    final int size = params == null ? 0 : params.size();
+    if (size > decoders.length) {
+      return invalidParams("expected at most " + decoders.length + " params but got " + size);
+    }
+
+    final Object[] args = new Object[decoders.length];
+    try {
+      for (int i = 0; i < decoders.length; i++) {
+        args[i] = decoders[i].decode(i < size ? params.get(i) : null);
+      }
+    } catch (InvalidParamException e) {
+      return invalidParams(e.getMessage());
+    }
+    return invoke(args);
+  }
+
+  @Override
+  public JsonRpcResult process(JsonRpcRequest request) {
+    final Map<String, ?> namedParams = request.getNamedParams();
+    if (namedParams == null) {
+      return process(request.getParams());
+    }
+
+    final Object[] args = new Object[decoders.length];
+    int bound = 0;
+    try {
+      for (int i = 0; i < decoders.length; i++) {
+        if (paramNames[i] == null) {
+          return invalidParams("method '" + name + "' only accepts positional params");
+        }
+        if (namedParams.containsKey(paramNames[i])) {
+          bound++;
+        } else if (!optional[i]) {
+          return invalidParams("missing param '" + paramNames[i] + "'");
+        }
+        args[i] = decoders[i].decode(namedParams.get(paramNames[i]));
+      }
+    } catch (InvalidParamException e) {
+      return invalidParams(e.getMessage());
+    }
+    if (bound < namedParams.size()) {
+      return invalidParams("unknown param '" + unknownParam(namedParams) + "'");
+    }
+    return invoke(args);
+  }
+
+  private JsonRpcResult invoke(Object[] args) {
+    final Object result;
+    try {
+      result = invoker.invokeExact(args);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new IllegalStateException(t);
+    }
+
+    if (result instanceof JsonRpcResult) {
+      return (JsonRpcResult) result;
+    }
+    return new JsonRpcResult(result);
+  }
+
+  private static JsonRpcResult invalidParams(String details) {
+    return new JsonRpcResult(new InvalidParamsJsonRpcError(details));
+  }
+
+  private static MethodHandle invoker(Object target, Method method) {
+    try {
+      method.setAccessible(true);
+      MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(target);
+      return handle
+          .asSpreader(Object[].class, method.getParameterCount())
+          .asType(MethodType.methodType(Object.class, Object[].class));
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Can't bind method " + method, e);
+    }
+  }
+
+  private String unknownParam(Map<String, ?> namedParams) {
+    List<String> known = Arrays.asList(paramNames);
+    for (String param : namedParams.keySet()) {
+      if (!known.contains(param)) {
+        return param;
+      }
+    }
+    throw new IllegalStateException("no unknown param in " + namedParams.keySet());
+  }
+
+  private static boolean isOptional(Parameter parameter) {
+    JsonRpcParam annotation = parameter.getAnnotation(JsonRpcParam.class);
+    return annotation != null && annotation.optional();
+  }
+
+  private static String paramName(Parameter parameter) {
+    JsonRpcParam annotation = parameter.getAnnotation(JsonRpcParam.class);
+    if (annotation != null) {
+      return annotation.value();
+    }
+    return parameter.isNamePresent() ? parameter.getName() : null;
+  }
+}
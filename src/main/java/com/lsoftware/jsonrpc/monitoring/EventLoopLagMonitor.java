@@ -0,0 +1,90 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the lag of every Vert.x event loop: a task is scheduled on each loop at a fixed interval
+ * and the lag is how late it runs. A loop blocked by a long task shows up as a large lag.
+ */
+public class EventLoopLagMonitor {
+
+  static final long SAMPLE_INTERVAL_MS = 100;
+  // the reported max lag covers the last second
+  private static final int SAMPLES_PER_WINDOW = 10;
+
+  private final List<LoopLag> loops = new ArrayList<>();
+
+  EventLoopLagMonitor(Vertx vertx) {
+    int index = 0;
+    for (EventExecutor executor : vertx.nettyEventLoopGroup()) {
+      LoopLag loop = new LoopLag("eventloop-" + index++, executor);
+      loops.add(loop);
+      loop.schedule();
+    }
+  }
+
+  /**
+   * Highest lag, in milliseconds, seen on any event loop over the last second.
+   */
+  public long maxLagMs() {
+    long max = 0;
+    for (LoopLag loop : loops) {
+      max = Math.max(max, loop.windowMaxLagNanos);
+    }
+    return TimeUnit.NANOSECONDS.toMillis(max);
+  }
+
+  public JsonArray toJson() {
+    JsonArray json = new JsonArray();
+    loops.forEach(loop -> json.add(new JsonObject()
+        .put("name", loop.name)
+        .put("lagMs", TimeUnit.NANOSECONDS.toMillis(loop.lagNanos))
+        .put("maxLagMs", TimeUnit.NANOSECONDS.toMillis(loop.windowMaxLagNanos))));
+    return json;
+  }
+
+  private static class LoopLag implements Runnable {
+
+    private final String name;
+    private final EventExecutor executor;
+    private long expected;
+    private int samples;
+    private long currentWindowMax;
+    private volatile long lagNanos;
+    private volatile long windowMaxLagNanos;
+
+    private LoopLag(String name, EventExecutor executor) {
+      this.name = name;
+      this.executor = executor;
+    }
+
+    private void schedule() {
+      if (executor.isShuttingDown()) {
+        return;
+      }
+      expected = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MS);
+      executor.schedule(this, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+      final long lag = Math.max(0, System.nanoTime() - expected);
+      lagNanos = lag;
+      currentWindowMax = Math.max(currentWindowMax, lag);
+      if (++samples == SAMPLES_PER_WINDOW) {
+        windowMaxLagNanos = currentWindowMax;
+        currentWindowMax = 0;
+        samples = 0;
+      } else if (currentWindowMax > windowMaxLagNanos) {
+        windowMaxLagNanos = currentWindowMax;
+      }
+      schedule();
+    }
+  }
+}
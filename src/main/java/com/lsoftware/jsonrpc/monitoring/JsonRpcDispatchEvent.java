@@ -0,0 +1,25 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.lsoftware.jsonrpc.Dispatch")
+@Label("JSON-RPC Dispatch")
+@Category("JSON-RPC")
+@Description("Round trip of a call over the event bus, including queuing and method execution.")
+@StackTrace(false)
+public class JsonRpcDispatchEvent extends Event {
+
+  @Label("Trace Id")
+  public String traceId;
+
+  @Label("Method")
+  public String method;
+
+  @Label("Batch Size")
+  public int batchSize;
+}
@@ -0,0 +1,25 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.lsoftware.jsonrpc.Method")
+@Label("JSON-RPC Method")
+@Category("JSON-RPC")
+@Description("Execution of a method by the registry.")
+@StackTrace(false)
+public class JsonRpcMethodEvent extends Event {
+
+  @Label("Trace Id")
+  public String traceId;
+
+  @Label("Method")
+  public String method;
+
+  @Label("Batch Size")
+  public int batchSize;
+}
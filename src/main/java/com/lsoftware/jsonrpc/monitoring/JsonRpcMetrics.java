@@ -0,0 +1,186 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime metrics of the JSON-RPC verticles deployed on a Vert.x instance: event loop lag, calls in
+ * flight, latency per priority class and per-method execution stats. One instance is shared by all
+ * the verticles of a Vert.x instance.
+ */
+public class JsonRpcMetrics implements Shareable {
+
+  private static final String LOCAL_MAP = "jsonrpc.metrics";
+
+  private final EventLoopLagMonitor eventLoopLag;
+  private final LongAdder processorInFlight = new LongAdder();
+  private final LongAdder registryInFlight = new LongAdder();
+  private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+  private final Map<String, LatencyHistogram> priorities = new ConcurrentHashMap<>();
+
+  private JsonRpcMetrics(Vertx vertx) {
+    this.eventLoopLag = new EventLoopLagMonitor(vertx);
+  }
+
+  public static JsonRpcMetrics get(Vertx vertx) {
+    LocalMap<String, JsonRpcMetrics> map = vertx.sharedData().getLocalMap(LOCAL_MAP);
+    JsonRpcMetrics metrics = map.get(LOCAL_MAP);
+    if (metrics == null) {
+      synchronized (JsonRpcMetrics.class) {
+        metrics = map.get(LOCAL_MAP);
+        if (metrics == null) {
+          metrics = new JsonRpcMetrics(vertx);
+          map.put(LOCAL_MAP, metrics);
+        }
+      }
+    }
+    return metrics;
+  }
+
+  public EventLoopLagMonitor eventLoopLag() {
+    return eventLoopLag;
+  }
+
+  /**
+   * Messages received by the processors that haven't been answered yet.
+   */
+  public LongAdder processorInFlight() {
+    return processorInFlight;
+  }
+
+  /**
+   * Calls being executed by the registries, including those running on the worker pool.
+   */
+  public LongAdder registryInFlight() {
+    return registryInFlight;
+  }
+
+  public MethodStats method(String name) {
+    MethodStats stats = methods.get(name);
+    if (stats == null) {
+      stats = methods.computeIfAbsent(name, n -> new MethodStats());
+    }
+    return stats;
+  }
+
+  /**
+   * Latency of the calls of a priority class, from the moment they are queued for dispatch until
+   * their response arrives.
+   */
+  public LatencyHistogram priorityLatency(String priority) {
+    return priorities.computeIfAbsent(priority, p -> new LatencyHistogram());
+  }
+
+  public JsonObject toJson() {
+    JsonObject prioritiesJson = new JsonObject();
+    priorities.forEach((name, latency) -> prioritiesJson.put(name, latency.toJson()));
+    JsonObject methodsJson = new JsonObject();
+    methods.forEach((name, stats) -> methodsJson.put(name, stats.toJson()));
+
+    return new JsonObject()
+        .put("eventLoops", eventLoopLag.toJson())
+        .put("inFlight", new JsonObject()
+            .put("processor", processorInFlight.sum())
+            .put("registry", registryInFlight.sum()))
+        .put("priorities", prioritiesJson)
+        .put("methods", methodsJson);
+  }
+
+  public static class MethodStats {
+
+    private static final String OPEN = "OPEN";
+    private static final String HALF_OPEN = "HALF_OPEN";
+    private static final String CLOSED = "CLOSED";
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder blockingCalls = new LongAdder();
+    private final LongAdder blockingNanos = new LongAdder();
+    private final LongAdder rejectedCalls = new LongAdder();
+    private volatile boolean demoted;
+    // keyed by the breakers of each processor instance
+    private final Map<Object, String> circuitStates = new ConcurrentHashMap<>();
+
+    /**
+     * Records an execution, returns true if it ran on an event loop for longer than the threshold.
+     */
+    public boolean record(long durationNanos, boolean onEventLoop, long blockingThresholdNanos) {
+      calls.increment();
+      if (onEventLoop && durationNanos >= blockingThresholdNanos) {
+        blockingCalls.increment();
+        blockingNanos.add(durationNanos);
+        return true;
+      }
+      return false;
+    }
+
+    public long blockingCalls() {
+      return blockingCalls.sum();
+    }
+
+    public boolean isDemoted() {
+      return demoted;
+    }
+
+    /**
+     * Marks the method to be executed on the worker pool from now on.
+     */
+    public void demote() {
+      demoted = true;
+    }
+
+    /**
+     * Records a call failed fast by an open circuit breaker.
+     */
+    public void rejected() {
+      rejectedCalls.increment();
+    }
+
+    /**
+     * State of the method's circuit: the worst state of its breakers, or null if none of them has
+     * ever left the closed state.
+     */
+    public String circuitState() {
+      if (circuitStates.isEmpty()) {
+        return null;
+      }
+      final Collection<String> states = circuitStates.values();
+      return states.contains(OPEN) ? OPEN : states.contains(HALF_OPEN) ? HALF_OPEN : CLOSED;
+    }
+
+    /**
+     * Records the state of the method's breaker in a processor instance.
+     */
+    public void setCircuitState(Object breakers, String circuitState) {
+      circuitStates.put(breakers, circuitState);
+    }
+
+    public void removeCircuitState(Object breakers) {
+      circuitStates.remove(breakers);
+    }
+
+    public JsonObject toJson() {
+      JsonObject json = new JsonObject()
+          .put("calls", calls.sum())
+          .put("blockingCalls", blockingCalls.sum())
+          .put("blockingMs", TimeUnit.NANOSECONDS.toMillis(blockingNanos.sum()))
+          .put("demoted", demoted);
+      final String circuitState = circuitState();
+      if (circuitState != null) {
+        final long openCircuits = circuitStates.values().stream()
+            .filter(state -> !CLOSED.equals(state))
+            .count();
+        json.put("circuit", circuitState)
+            .put("openCircuits", openCircuits)
+            .put("rejectedCalls", rejectedCalls.sum());
+      }
+      return json;
+    }
+  }
+}
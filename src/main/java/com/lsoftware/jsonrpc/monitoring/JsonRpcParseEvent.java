@@ -0,0 +1,30 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.lsoftware.jsonrpc.Parse")
+@Label("JSON-RPC Parse")
+@Category("JSON-RPC")
+@Description("Decoding of a message into JSON-RPC requests, failed or not.")
+@StackTrace(false)
+public class JsonRpcParseEvent extends Event {
+
+  @Label("Trace Id")
+  public String traceId;
+
+  @Label("Batch Size")
+  public int batchSize;
+
+  @Label("Length")
+  @Description("Length of the message in characters.")
+  public long chars;
+
+  @Label("Error Code")
+  @Description("JSON-RPC error code of a message that couldn't be decoded, 0 otherwise.")
+  public int errorCode;
+}
@@ -0,0 +1,30 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.lsoftware.jsonrpc.Request")
+@Label("JSON-RPC Request")
+@Category("JSON-RPC")
+@Description("Whole processing of a message, from parsing to the response.")
+@StackTrace(false)
+public class JsonRpcRequestEvent extends Event {
+
+  @Label("Trace Id")
+  public String traceId;
+
+  @Label("Batch Size")
+  public int batchSize;
+
+  @Label("Request Length")
+  @Description("Length of the request in characters.")
+  public long requestChars;
+
+  @Label("Response Length")
+  @Description("Length of the response in characters.")
+  public long responseChars;
+}
@@ -0,0 +1,23 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.lsoftware.jsonrpc.ResponseWrite")
+@Label("JSON-RPC Response Write")
+@Category("JSON-RPC")
+@Description("Write of a response to the transport.")
+@StackTrace(false)
+public class JsonRpcResponseWriteEvent extends Event {
+
+  @Label("Transport")
+  public String transport;
+
+  @Label("Length")
+  @Description("Length of the response in characters.")
+  public long chars;
+}
@@ -0,0 +1,38 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import io.vertx.core.MultiMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace context carried in the event-bus message headers, from the transport to the methods.
+ */
+public final class JsonRpcTracing {
+
+  public static final String TRACE_ID_HEADER = "jsonrpc.trace-id";
+
+  private static final String TRACEPARENT_HEADER = "traceparent";
+
+  private JsonRpcTracing() {
+  }
+
+  public static String traceId(MultiMap headers) {
+    return headers.get(TRACE_ID_HEADER);
+  }
+
+  /**
+   * Trace id of an incoming W3C {@code traceparent} header, or null if there is none or it is
+   * malformed.
+   */
+  public static String traceIdFromTraceparent(MultiMap headers) {
+    String traceparent = headers.get(TRACEPARENT_HEADER);
+    if (traceparent == null || traceparent.length() < 55 || traceparent.charAt(2) != '-') {
+      return null;
+    }
+    return traceparent.substring(3, 35);
+  }
+
+  public static String newTraceId() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return String.format("%016x%016x", random.nextLong(), random.nextLong());
+  }
+}
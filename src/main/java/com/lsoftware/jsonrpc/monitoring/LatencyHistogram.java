@@ -0,0 +1,62 @@
+package com.lsoftware.jsonrpc.monitoring;
+
+import io.vertx.core.json.JsonObject;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe latency histogram with power-of-two microsecond buckets. Percentiles are reported as
+ * the upper bound of their bucket, so they are accurate to within a factor of two.
+ */
+public class LatencyHistogram {
+
+  private static final int BUCKETS = 40;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long nanos) {
+    final long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+    buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    count.increment();
+    totalMicros.add(micros);
+    maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  /**
+   * Upper bound, in microseconds, of the latency of the given fraction of the recorded values.
+   */
+  public long percentileMicros(double fraction) {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += buckets.get(i);
+    }
+    final long rank = (long) Math.ceil(fraction * total);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank && seen > 0) {
+        return Math.min(i == 0 ? 0 : 1L << i, maxMicros.get());
+      }
+    }
+    return 0;
+  }
+
+  public JsonObject toJson() {
+    final long n = count.sum();
+    return new JsonObject()
+        .put("count", n)
+        .put("meanUs", n == 0 ? 0 : totalMicros.sum() / n)
+        .put("p50Us", percentileMicros(0.5))
+        .put("p99Us", percentileMicros(0.99))
+        .put("maxUs", maxMicros.get());
+  }
+}
@@ -0,0 +1,128 @@
+package com.lsoftware.jsonrpc.websockets;
+
+import com.lsoftware.jsonrpc.websockets.WebSocketSubscriptionOptions.SlowConsumerPolicy;
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.http.ServerWebSocket;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * State of a WebSocket connection: requests waiting for a response, and notifications waiting for
+ * the socket to drain.
+ */
+class WebSocketConnection {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WebSocketConnection.class);
+
+  // see RFC 6455 section 7.4.1
+  static final short GOING_AWAY = 1001;
+  static final short TRY_AGAIN_LATER = 1013;
+
+  private final ServerWebSocket websocket;
+  private final WebSocketWriter writer;
+  private final WebSocketSubscriptionOptions options;
+  // each one holds a reference to the notification shared with the other subscribers
+  private final Deque<ByteBuf> notifications = new ArrayDeque<>();
+  private int pending;
+  private boolean draining;
+  private long dropped;
+
+  WebSocketConnection(ServerWebSocket websocket, WebSocketWriter writer,
+      WebSocketSubscriptionOptions options) {
+    this.websocket = websocket;
+    this.writer = writer;
+    this.options = options;
+    websocket.drainHandler(v -> flush());
+  }
+
+  ServerWebSocket websocket() {
+    return websocket;
+  }
+
+  void requestStarted() {
+    pending++;
+  }
+
+  void requestCompleted() {
+    pending--;
+  }
+
+  /**
+   * Writes a response. Responses skip the notification queue: they are never dropped.
+   */
+  void respond(String response) {
+    writer.write(response);
+    closeIfDrained();
+  }
+
+  /**
+   * Writes a notification, or queues it while the socket can't take more writes. The notification
+   * stays owned by the caller.
+   */
+  void push(ByteBuf notification) {
+    if (websocket.isClosed()) {
+      return;
+    }
+    if (notifications.isEmpty() && !websocket.writeQueueFull()) {
+      writer.write(notification);
+      return;
+    }
+    if (notifications.size() >= options.getMaxQueuedNotifications()) {
+      if (options.getSlowConsumerPolicy() == SlowConsumerPolicy.DISCONNECT) {
+        LOG.debug("Closing slow WebSocket consumer {}", websocket.remoteAddress());
+        releaseNotifications();
+        websocket.close(TRY_AGAIN_LATER, "Too many notifications queued");
+        return;
+      }
+      if (dropped++ == 0) {
+        LOG.debug("Dropping notifications of slow WebSocket consumer {}",
+            websocket.remoteAddress());
+      }
+      notifications.pollFirst().release();
+    }
+    notifications.addLast(notification.retain());
+  }
+
+  private void flush() {
+    while (!notifications.isEmpty() && !websocket.writeQueueFull()) {
+      final ByteBuf notification = notifications.pollFirst();
+      writer.write(notification);
+      notification.release();
+    }
+  }
+
+  /**
+   * Releases the notifications still queued, once the connection is closed.
+   */
+  void closed() {
+    releaseNotifications();
+  }
+
+  private void releaseNotifications() {
+    notifications.forEach(ByteBuf::release);
+    notifications.clear();
+  }
+
+  /**
+   * Stops reading requests, the connection is closed once the pending ones have been answered.
+   */
+  void drain() {
+    draining = true;
+    websocket.pause();
+    closeIfDrained();
+  }
+
+  void close() {
+    if (!websocket.isClosed()) {
+      websocket.close(GOING_AWAY, "Server shutting down");
+    }
+  }
+
+  private void closeIfDrained() {
+    if (draining && pending == 0) {
+      close();
+    }
+  }
+}
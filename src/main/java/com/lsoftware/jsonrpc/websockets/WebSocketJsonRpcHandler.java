@@ -1,27 +1,168 @@
 package com.lsoftware.jsonrpc.websockets;
 
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_CONNECTION_HEADER;
 import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
 
+import com.lsoftware.jsonrpc.JsonRpcDrain;
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcResponseWriteEvent;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.DecodeException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 class WebSocketJsonRpcHandler implements Handler<ServerWebSocket> {
 
+  // in the namespace JSON-RPC reserves for extensions, so that they can't shadow service methods
+  static final String SUBSCRIBE_METHOD = "rpc.subscribe";
+  static final String UNSUBSCRIBE_METHOD = "rpc.unsubscribe";
+  private static final String RESERVED_PREFIX = "rpc.";
+
   private final Vertx vertx;
+  private final JsonRpcDrain drain;
+  private final WebSocketSubscriptionOptions subscriptionOptions;
+  private final WebSocketWriteOptions writeOptions;
+  private final int maxFrameSize;
+  private final WebSocketSubscriptions subscriptions;
+  private final Set<WebSocketConnection> connections = new HashSet<>();
 
-  WebSocketJsonRpcHandler(Vertx vertx) {
+  WebSocketJsonRpcHandler(Vertx vertx, WebSocketSubscriptionOptions subscriptionOptions,
+      WebSocketWriteOptions writeOptions, int maxFrameSize) {
     this.vertx = vertx;
+    this.drain = JsonRpcDrain.get(vertx);
+    this.subscriptionOptions = subscriptionOptions;
+    this.writeOptions = writeOptions;
+    this.maxFrameSize = maxFrameSize;
+    this.subscriptions = new WebSocketSubscriptions(vertx);
   }
 
   @Override
   public void handle(ServerWebSocket websocket) {
-    websocket.handler(buffer -> {
-      vertx.eventBus()
-          .request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, buffer.toString(), ar -> {
-            String body = (String) ar.result().body();
-            vertx.eventBus().send(websocket.textHandlerID(), body);
-          });
+    if (drain.isDraining()) {
+      websocket.reject(503);
+      return;
+    }
+
+    final WebSocketConnection connection = new WebSocketConnection(websocket,
+        new WebSocketWriter(websocket, writeOptions, maxFrameSize), subscriptionOptions);
+    connections.add(connection);
+    websocket.closeHandler(v -> {
+      connections.remove(connection);
+      subscriptions.unsubscribeAll(connection);
+      connection.closed();
     });
+
+    DeliveryOptions options = new DeliveryOptions()
+        .addHeader(JSONRPC_CONNECTION_HEADER, websocket.textHandlerID());
+
+    // whole messages rather than frames, large batches are fragmented by clients
+    websocket.textMessageHandler(message -> handleMessage(connection, options, message));
+    websocket.binaryMessageHandler(
+        buffer -> handleMessage(connection, options, buffer.toString()));
+  }
+
+  private void handleMessage(WebSocketConnection connection, DeliveryOptions options,
+      String message) {
+    if (handleSubscription(connection, message)) {
+      return;
+    }
+
+    connection.requestStarted();
+    vertx.eventBus()
+        .request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, message, options, ar -> {
+          connection.requestCompleted();
+          // the processor answers every call, this only fails if it times out or isn't deployed
+          final String body = ar.succeeded()
+              ? (String) ar.result().body()
+              : JsonRpcCodec.encodeResponse(JsonRpcErrorResponses.internalError(
+                  JsonRpcCodec.decodeRequestId(message), ar.cause().getMessage()));
+          JsonRpcResponseWriteEvent event = new JsonRpcResponseWriteEvent();
+          event.begin();
+          // written directly rather than through the text handler address, so that the close
+          // frame of a draining connection can't overtake it
+          connection.respond(body);
+          if (event.shouldCommit()) {
+            event.transport = "websocket";
+            event.chars = body.length();
+            event.commit();
+          }
+        });
+  }
+
+  /**
+   * Handles subscribe and unsubscribe calls, which are bound to the connection and never reach the
+   * processor. Returns false for any other message. Subscriptions skip the admission checks of the
+   * processor, so the topics and their number per connection are bounded here instead.
+   */
+  private boolean handleSubscription(WebSocketConnection connection, String message) {
+    // cheap test first, most messages are plain calls
+    if (!message.contains(RESERVED_PREFIX)) {
+      return false;
+    }
+    final JsonRpcRequest request;
+    try {
+      request = JsonRpcCodec.decodeRequest(message);
+    } catch (DecodeException e) {
+      return false;
+    }
+    final boolean subscribe = SUBSCRIBE_METHOD.equals(request.getMethod());
+    if (!subscribe && !UNSUBSCRIBE_METHOD.equals(request.getMethod())) {
+      return false;
+    }
+
+    final List<?> params = request.getParams();
+    if (params == null || params.size() != 1 || !(params.get(0) instanceof String)) {
+      connection.respond(JsonRpcCodec.encodeResponse(JsonRpcErrorResponses.invalidParams(
+          request.getId(), subscribe ? "Expected the topic name" : "Expected the subscription id")));
+      return true;
+    }
+
+    final String param = (String) params.get(0);
+    if (subscribe && !subscriptionOptions.getTopics().isEmpty()
+        && !subscriptionOptions.getTopics().contains(param)) {
+      connection.respond(JsonRpcCodec.encodeResponse(
+          JsonRpcErrorResponses.invalidParams(request.getId(), "Unknown topic")));
+      return true;
+    }
+    if (subscribe && !subscriptions.isSubscribed(connection, param)
+        && subscriptions.subscriptions(connection)
+            >= subscriptionOptions.getMaxSubscriptionsPerConnection()) {
+      connection.respond(
+          JsonRpcCodec.encodeResponse(JsonRpcErrorResponses.limitExceeded(request.getId())));
+      return true;
+    }
+
+    final Object result = subscribe
+        ? subscriptions.subscribe(connection, param)
+        : subscriptions.unsubscribe(connection, param);
+    connection.respond(
+        JsonRpcCodec.encodeResponse(new JsonRpcSuccessResponse(request.getId(), result)));
+    return true;
+  }
+
+  /**
+   * Stops reading from every connection and closes each one once its pending requests have been
+   * answered.
+   */
+  void drain() {
+    new HashSet<>(connections).forEach(WebSocketConnection::drain);
+  }
+
+  int openConnections() {
+    return connections.size();
+  }
+
+  /**
+   * Closes the connections that are still open.
+   */
+  void closeAll() {
+    new HashSet<>(connections).forEach(WebSocketConnection::close);
   }
 }
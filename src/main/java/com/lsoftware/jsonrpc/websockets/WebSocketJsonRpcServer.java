@@ -1,5 +1,6 @@
 package com.lsoftware.jsonrpc.websockets;
 
+import com.lsoftware.jsonrpc.JsonRpcDrain;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
 import io.vertx.core.http.HttpServer;
@@ -11,7 +12,24 @@ public class WebSocketJsonRpcServer extends AbstractVerticle {
 
   private static final Logger LOG = LoggerFactory.getLogger(WebSocketJsonRpcServer.class);
 
+  private final WebSocketSubscriptionOptions subscriptionOptions;
+  private final WebSocketWriteOptions writeOptions;
   private HttpServer httpServer;
+  private WebSocketJsonRpcHandler webSocketHandler;
+
+  public WebSocketJsonRpcServer() {
+    this(new WebSocketSubscriptionOptions());
+  }
+
+  public WebSocketJsonRpcServer(WebSocketSubscriptionOptions subscriptionOptions) {
+    this(subscriptionOptions, new WebSocketWriteOptions());
+  }
+
+  public WebSocketJsonRpcServer(WebSocketSubscriptionOptions subscriptionOptions,
+      WebSocketWriteOptions writeOptions) {
+    this.subscriptionOptions = subscriptionOptions;
+    this.writeOptions = writeOptions;
+  }
 
   @Override
   public void start(Promise<Void> startFuture) {
@@ -19,7 +37,9 @@ public class WebSocketJsonRpcServer extends AbstractVerticle {
         .setPort(8081);
 
     httpServer = vertx.createHttpServer(options);
-    httpServer.webSocketHandler(new WebSocketJsonRpcHandler(vertx));
+    webSocketHandler = new WebSocketJsonRpcHandler(vertx, subscriptionOptions, writeOptions,
+        options.getMaxWebSocketFrameSize());
+    httpServer.webSocketHandler(webSocketHandler);
 
     httpServer.listen(res -> {
       if (res.succeeded()) {
@@ -31,7 +51,19 @@ public class WebSocketJsonRpcServer extends AbstractVerticle {
     });
   }
 
+  /**
+   * When draining, sends a close frame on each connection once its pending requests have been
+   * answered, and waits for the connections to close before closing the server.
+   */
   public void stop(Promise<Void> endFuture) {
-    httpServer.close(endFuture);
+    final JsonRpcDrain drain = JsonRpcDrain.get(vertx);
+    if (drain.isDraining()) {
+      webSocketHandler.drain();
+    }
+    drain.awaitIdle("WebSocket connections", webSocketHandler::openConnections)
+        .onComplete(v -> {
+          webSocketHandler.closeAll();
+          httpServer.close(endFuture);
+        });
   }
 }
@@ -0,0 +1,81 @@
+package com.lsoftware.jsonrpc.websockets;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Limits on WebSocket subscriptions. Each connection can only subscribe to a bounded number of
+ * topics, and only to the topics listed here when there are any. Notifications a socket can't take
+ * right away wait in a bounded per-socket queue; when it overflows the slow consumer policy applies.
+ */
+public class WebSocketSubscriptionOptions {
+
+  public static final int DEFAULT_MAX_QUEUED_NOTIFICATIONS = 1000;
+  public static final int DEFAULT_MAX_SUBSCRIPTIONS_PER_CONNECTION = 32;
+
+  public enum SlowConsumerPolicy {
+    /**
+     * Drops the oldest queued notification to make room for the new one.
+     */
+    DROP,
+    /**
+     * Closes the connection.
+     */
+    DISCONNECT
+  }
+
+  private int maxQueuedNotifications = DEFAULT_MAX_QUEUED_NOTIFICATIONS;
+  private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP;
+  private int maxSubscriptionsPerConnection = DEFAULT_MAX_SUBSCRIPTIONS_PER_CONNECTION;
+  private final Set<String> topics = new LinkedHashSet<>();
+
+  public int getMaxQueuedNotifications() {
+    return maxQueuedNotifications;
+  }
+
+  public WebSocketSubscriptionOptions setMaxQueuedNotifications(int maxQueuedNotifications) {
+    if (maxQueuedNotifications <= 0) {
+      throw new IllegalArgumentException("maxQueuedNotifications must be positive");
+    }
+    this.maxQueuedNotifications = maxQueuedNotifications;
+    return this;
+  }
+
+  public SlowConsumerPolicy getSlowConsumerPolicy() {
+    return slowConsumerPolicy;
+  }
+
+  public WebSocketSubscriptionOptions setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+    this.slowConsumerPolicy = slowConsumerPolicy;
+    return this;
+  }
+
+  public int getMaxSubscriptionsPerConnection() {
+    return maxSubscriptionsPerConnection;
+  }
+
+  public WebSocketSubscriptionOptions setMaxSubscriptionsPerConnection(
+      int maxSubscriptionsPerConnection) {
+    if (maxSubscriptionsPerConnection <= 0) {
+      throw new IllegalArgumentException("maxSubscriptionsPerConnection must be positive");
+    }
+    this.maxSubscriptionsPerConnection = maxSubscriptionsPerConnection;
+    return this;
+  }
+
+  /**
+   * Topics clients may subscribe to. Any topic when empty.
+   */
+  public Set<String> getTopics() {
+    return Collections.unmodifiableSet(topics);
+  }
+
+  public WebSocketSubscriptionOptions addTopic(String topic) {
+    if (topic == null || topic.isEmpty()) {
+      throw new IllegalArgumentException("topic must not be empty");
+    }
+    topics.add(topic);
+    return this;
+  }
+}
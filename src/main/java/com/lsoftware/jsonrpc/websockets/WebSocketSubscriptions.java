@@ -0,0 +1,132 @@
+package com.lsoftware.jsonrpc.websockets;
+
+import com.lsoftware.jsonrpc.api.JsonRpcTopics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Topic subscriptions of the connections of a WebSocket server. Each topic is consumed once per
+ * server and each event is encoded into a notification once, then the same bytes are written to
+ * every subscriber.
+ * For that the subscription id identifies the topic on this server: all its subscribers share it.
+ *
+ * <p>Not thread-safe: meant to be used from the context of the verticle that owns it.
+ */
+class WebSocketSubscriptions {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WebSocketSubscriptions.class);
+
+  private final Vertx vertx;
+  private final Map<String, Topic> topicsByName = new HashMap<>();
+  private final Map<String, Topic> topicsById = new HashMap<>();
+  private final Map<WebSocketConnection, Set<Topic>> topicsByConnection = new HashMap<>();
+
+  WebSocketSubscriptions(Vertx vertx) {
+    this.vertx = vertx;
+  }
+
+  /**
+   * Subscribes the connection to the topic, returns the subscription id.
+   */
+  String subscribe(WebSocketConnection connection, String name) {
+    Topic topic = topicsByName.get(name);
+    if (topic == null) {
+      topic = new Topic(name);
+      topicsByName.put(name, topic);
+      topicsById.put(topic.id, topic);
+      LOG.debug("Consuming topic {}", name);
+    }
+    topic.subscribers.add(connection);
+    topicsByConnection.computeIfAbsent(connection, c -> new HashSet<>()).add(topic);
+    return topic.id;
+  }
+
+  /**
+   * Whether the connection is subscribed to the topic.
+   */
+  boolean isSubscribed(WebSocketConnection connection, String name) {
+    final Topic topic = topicsByName.get(name);
+    return topic != null && topic.subscribers.contains(connection);
+  }
+
+  /**
+   * Number of topics the connection is subscribed to.
+   */
+  int subscriptions(WebSocketConnection connection) {
+    final Set<Topic> topics = topicsByConnection.get(connection);
+    return topics == null ? 0 : topics.size();
+  }
+
+  /**
+   * Returns false if the connection isn't subscribed with that id.
+   */
+  boolean unsubscribe(WebSocketConnection connection, String id) {
+    final Topic topic = topicsById.get(id);
+    if (topic == null || !topic.subscribers.remove(connection)) {
+      return false;
+    }
+    final Set<Topic> topics = topicsByConnection.get(connection);
+    topics.remove(topic);
+    if (topics.isEmpty()) {
+      topicsByConnection.remove(connection);
+    }
+    removeIfUnused(topic);
+    return true;
+  }
+
+  void unsubscribeAll(WebSocketConnection connection) {
+    final Set<Topic> topics = topicsByConnection.remove(connection);
+    if (topics != null) {
+      topics.forEach(topic -> {
+        topic.subscribers.remove(connection);
+        removeIfUnused(topic);
+      });
+    }
+  }
+
+  private void removeIfUnused(Topic topic) {
+    if (topic.subscribers.isEmpty()) {
+      LOG.debug("No more subscribers to topic {}", topic.name);
+      topic.consumer.unregister();
+      topicsByName.remove(topic.name);
+      topicsById.remove(topic.id);
+    }
+  }
+
+  private class Topic {
+
+    private final String name;
+    private final String id = UUID.randomUUID().toString();
+    private final Set<WebSocketConnection> subscribers = new LinkedHashSet<>();
+    private final MessageConsumer<String> consumer;
+
+    private Topic(String name) {
+      this.name = name;
+      this.consumer = vertx.eventBus()
+          .consumer(JsonRpcTopics.eventBusAddress(name), msg -> publish(msg.body()));
+    }
+
+    private void publish(String event) {
+      // the event is already JSON, so the notification is assembled rather than re-encoded
+      final ByteBuf notification = ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT,
+          "{\"jsonrpc\":\"2.0\",\"method\":\"subscription\","
+          + "\"params\":{\"subscription\":\"" + id + "\",\"result\":" + event + "}}");
+      try {
+        subscribers.forEach(connection -> connection.push(notification));
+      } finally {
+        notification.release();
+      }
+    }
+  }
+}
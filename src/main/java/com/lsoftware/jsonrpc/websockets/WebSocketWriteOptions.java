@@ -0,0 +1,37 @@
+package com.lsoftware.jsonrpc.websockets;
+
+/**
+ * How WebSocket messages are written. With write coalescing, the messages written to a connection
+ * during the same event-loop iteration are flushed to the socket together rather than one by one,
+ * and earlier once {@link #getMaxCoalescedBytes()} are waiting to be flushed. It is off by default:
+ * it only pays off for clients keeping many calls in flight, see {@code WebSocketBenchmark}.
+ */
+public class WebSocketWriteOptions {
+
+  public static final boolean DEFAULT_COALESCE_WRITES = false;
+  public static final int DEFAULT_MAX_COALESCED_BYTES = 32 * 1024;
+
+  private boolean coalesceWrites = DEFAULT_COALESCE_WRITES;
+  private int maxCoalescedBytes = DEFAULT_MAX_COALESCED_BYTES;
+
+  public boolean isCoalesceWrites() {
+    return coalesceWrites;
+  }
+
+  public WebSocketWriteOptions setCoalesceWrites(boolean coalesceWrites) {
+    this.coalesceWrites = coalesceWrites;
+    return this;
+  }
+
+  public int getMaxCoalescedBytes() {
+    return maxCoalescedBytes;
+  }
+
+  public WebSocketWriteOptions setMaxCoalescedBytes(int maxCoalescedBytes) {
+    if (maxCoalescedBytes <= 0) {
+      throw new IllegalArgumentException("maxCoalescedBytes must be positive");
+    }
+    this.maxCoalescedBytes = maxCoalescedBytes;
+    return this;
+  }
+}
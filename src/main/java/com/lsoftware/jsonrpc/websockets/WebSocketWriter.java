@@ -0,0 +1,128 @@
+package com.lsoftware.jsonrpc.websockets;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.impl.WebSocketInternal;
+import io.vertx.core.net.impl.ConnectionBase;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the text messages of a WebSocket connection. With write coalescing, each message is
+ * written without flushing and a single flush runs at the end of the event-loop iteration, so a
+ * burst of responses completing together costs one write syscall instead of one per message. A
+ * lone message is flushed at the end of the iteration it was written in, which doesn't delay it in
+ * practice.
+ *
+ * <p>Vert.x flushes every message it writes outside of a read, so this goes through its connection
+ * internals. Notifications shared by several connections are also written through them, so that
+ * their bytes are written as they are rather than encoded again for each connection. Messages
+ * larger than a frame, or connections that aren't a Vert.x {@link ConnectionBase}, are written the
+ * regular way.
+ */
+class WebSocketWriter {
+
+  private final ServerWebSocket websocket;
+  private final ConnectionBase connection;
+  private final boolean coalesce;
+  private final int maxCoalescedBytes;
+  private final int maxFrameSize;
+  private final Runnable flushTask = this::scheduledFlush;
+  private int unflushedBytes;
+  private boolean flushScheduled;
+
+  WebSocketWriter(ServerWebSocket websocket, WebSocketWriteOptions options, int maxFrameSize) {
+    this.websocket = websocket;
+    this.connection = connectionOf(websocket);
+    this.coalesce = options.isCoalesceWrites();
+    this.maxCoalescedBytes = options.getMaxCoalescedBytes();
+    this.maxFrameSize = maxFrameSize;
+  }
+
+  private static ConnectionBase connectionOf(ServerWebSocket websocket) {
+    if (websocket instanceof WebSocketInternal
+        && ((WebSocketInternal) websocket).connection() instanceof ConnectionBase) {
+      return (ConnectionBase) ((WebSocketInternal) websocket).connection();
+    }
+    return null;
+  }
+
+  void write(String message) {
+    if (connection == null || !coalesce) {
+      websocket.writeTextMessage(message);
+      return;
+    }
+    if (websocket.isClosed()) {
+      return;
+    }
+
+    final ByteBuf payload = ByteBufUtil.writeUtf8(connection.channel().alloc(), message);
+    if (payload.readableBytes() > maxFrameSize) {
+      payload.release();
+      writeLarge(message);
+      return;
+    }
+    writeFrame(payload);
+  }
+
+  /**
+   * Writes a message already encoded in UTF-8. The caller keeps its reference to the message, which
+   * can be written to other connections as well.
+   */
+  void write(ByteBuf message) {
+    if (websocket.isClosed()) {
+      return;
+    }
+    if (connection == null || message.readableBytes() > maxFrameSize) {
+      writeLarge(message.toString(StandardCharsets.UTF_8));
+      return;
+    }
+    writeFrame(message.retainedDuplicate());
+  }
+
+  private void writeLarge(String message) {
+    // Vert.x splits it into continuation frames, and flushes what was written before it
+    websocket.writeTextMessage(message);
+    unflushedBytes = 0;
+  }
+
+  private void writeFrame(ByteBuf payload) {
+    if (!coalesce) {
+      connection.writeToChannel(new TextWebSocketFrame(payload), connection.voidPromise);
+      return;
+    }
+    final int bytes = payload.readableBytes();
+    connection.writeToChannel(new TextWebSocketFrame(payload), false, connection.voidPromise);
+    unflushedBytes += bytes;
+    if (unflushedBytes >= maxCoalescedBytes) {
+      flush();
+    } else if (!flushScheduled) {
+      flushScheduled = true;
+      scheduleFlush();
+    }
+  }
+
+  private void scheduleFlush() {
+    final EventLoop eventLoop = connection.channel().eventLoop();
+    if (eventLoop instanceof SingleThreadEventLoop) {
+      ((SingleThreadEventLoop) eventLoop).executeAfterEventLoopIteration(flushTask);
+    } else {
+      eventLoop.execute(flushTask);
+    }
+  }
+
+  private void scheduledFlush() {
+    flushScheduled = false;
+    if (unflushedBytes > 0) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    unflushedBytes = 0;
+    connection.flush();
+  }
+}
@@ -0,0 +1,171 @@
+package com.lsoftware.jsonrpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.JsonRpcCircuitBreakers.State;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponse;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class JsonRpcCircuitBreakersTest {
+
+  private static final JsonRpcRequest REQUEST =
+      new JsonRpcRequest("1", "aMethod", Collections.emptyList());
+
+  private JsonRpcMetrics metrics;
+  private JsonRpcCircuitBreakers breakers;
+
+  @BeforeEach
+  public void before(Vertx vertx) {
+    metrics = JsonRpcMetrics.get(vertx);
+    breakers = new JsonRpcCircuitBreakers(policy(), metrics);
+  }
+
+  @Test
+  public void failuresOverThresholdShouldOpenBreaker() {
+    call(true);
+    call(false);
+    call(false);
+    assertThat(breakers.state("aMethod")).isEqualTo(State.CLOSED);
+
+    call(true);
+    assertThat(breakers.state("aMethod")).isEqualTo(State.OPEN);
+
+    JsonRpcErrorResponse rejection = breakers.check(REQUEST);
+    assertThat(rejection.getError().getCode()).isEqualTo(-32006);
+  }
+
+  @Test
+  public void slowCallsShouldOpenBreaker() {
+    for (int i = 0; i < 4; i++) {
+      assertThat(breakers.check(REQUEST)).isNull();
+      breakers.completed(REQUEST, success(), TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    assertThat(breakers.state("aMethod")).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void successfulTrialCallsShouldCloseBreaker() throws InterruptedException {
+    for (int i = 0; i < 4; i++) {
+      call(true);
+    }
+    assertThat(breakers.state("aMethod")).isEqualTo(State.OPEN);
+
+    Thread.sleep(60);
+    assertThat(breakers.check(REQUEST)).isNull();
+    assertThat(breakers.check(REQUEST)).isNull();
+    assertThat(breakers.state("aMethod")).isEqualTo(State.HALF_OPEN);
+    // only the trial calls are let through
+    assertThat(breakers.check(REQUEST)).isNotNull();
+
+    breakers.completed(REQUEST, success(), 0);
+    breakers.completed(REQUEST, success(), 0);
+    assertThat(breakers.state("aMethod")).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  public void failedTrialCallShouldReopenBreaker() throws InterruptedException {
+    for (int i = 0; i < 4; i++) {
+      call(true);
+    }
+
+    Thread.sleep(60);
+    call(true);
+    assertThat(breakers.state("aMethod")).isEqualTo(State.OPEN);
+  }
+
+  @Test
+  public void trialCallRejectedByLaterCheckShouldBeGivenBack() throws InterruptedException {
+    for (int i = 0; i < 4; i++) {
+      call(true);
+    }
+
+    Thread.sleep(60);
+    JsonRpcAdmission limited = breakers.andThen(
+        request -> JsonRpcErrorResponses.limitExceeded(request.getId()));
+    assertThat(limited.check(REQUEST).getError().getCode()).isEqualTo(-32005);
+
+    // both trial calls are still available
+    assertThat(breakers.check(REQUEST)).isNull();
+    assertThat(breakers.check(REQUEST)).isNull();
+  }
+
+  @Test
+  public void idleClosedBreakersShouldBeEvicted() throws InterruptedException {
+    JsonRpcCircuitBreakers breakers =
+        new JsonRpcCircuitBreakers(policy().setWindowMs(20), metrics);
+    assertThat(breakers.check(REQUEST)).isNull();
+    breakers.completed(REQUEST, JsonRpcErrorResponses.internalError("1", null), 0);
+    breakers.evictIdleBreakers();
+    assertThat(breakers.size()).isEqualTo(1);
+
+    Thread.sleep(30);
+    breakers.evictIdleBreakers();
+    assertThat(breakers.size()).isZero();
+    // unknown method names never reach the method stats
+    assertThat(metrics.toJson().getJsonObject("methods").containsKey("aMethod")).isFalse();
+  }
+
+  @Test
+  public void unknownMethodsShouldNotGetABreaker() {
+    for (int i = 0; i < 100; i++) {
+      JsonRpcRequest request = new JsonRpcRequest("1", "unknown" + i, Collections.emptyList());
+      assertThat(breakers.check(request)).isNull();
+      breakers.completed(request, JsonRpcErrorResponses.methodNotFound("1"),
+          TimeUnit.MILLISECONDS.toNanos(200));
+    }
+    // nor do methods that only succeed
+    breakers.completed(REQUEST, success(), 0);
+
+    assertThat(breakers.size()).isZero();
+  }
+
+  @Test
+  public void circuitShouldReportWorstStateOfProcessorInstances() {
+    JsonRpcCircuitBreakers other = new JsonRpcCircuitBreakers(policy(), metrics);
+    assertThat(other.check(REQUEST)).isNull();
+    other.completed(REQUEST, success(), 0);
+    for (int i = 0; i < 4; i++) {
+      call(true);
+    }
+
+    assertThat(metrics.method("aMethod").circuitState()).isEqualTo("OPEN");
+    assertThat(metrics.method("aMethod").toJson().getLong("openCircuits")).isEqualTo(1);
+    // the other instance still admits calls
+    assertThat(other.check(REQUEST)).isNull();
+
+    breakers.close();
+    assertThat(metrics.method("aMethod").circuitState()).isNull();
+  }
+
+  private JsonRpcCircuitBreakerPolicy policy() {
+    return new JsonRpcCircuitBreakerPolicy()
+        .setEnabled(true)
+        .setMinimumCalls(4)
+        .setFailureRateThreshold(0.5)
+        .setSlowCallThresholdMs(100)
+        .setOpenDurationMs(50)
+        .setHalfOpenCalls(2);
+  }
+
+  private void call(boolean fail) {
+    assertThat(breakers.check(REQUEST)).isNull();
+    breakers.completed(REQUEST,
+        fail ? JsonRpcErrorResponses.internalError("1", null) : success(), 0);
+  }
+
+  private JsonRpcSuccessResponse success() {
+    return new JsonRpcSuccessResponse("1", "ok");
+  }
+}
@@ -0,0 +1,268 @@
+package com.lsoftware.jsonrpc;
+
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class JsonRpcClusterRouterTest {
+
+  private Vertx nodeA;
+  private Vertx nodeB;
+  private String localRegistry;
+  private String remoteOnlyRegistry;
+
+  @BeforeEach
+  public void before(VertxTestContext context) {
+    clusteredVertx()
+        .compose(vertx -> {
+          nodeA = vertx;
+          return clusteredVertx();
+        })
+        .compose(vertx -> {
+          nodeB = vertx;
+          return deployAndAwaitAnnouncements();
+        })
+        .onComplete(context.succeedingThenComplete());
+  }
+
+  @AfterEach
+  public void after(VertxTestContext context) {
+    CompositeFuture.all(nodeA.close(), nodeB.close()).onComplete(ar -> {
+      FakeClusterManager.reset();
+      context.completeNow();
+    });
+  }
+
+  @Test
+  public void callsShouldPreferLocalInstance(VertxTestContext context) {
+    String expectedResponse = Json.encode(new JsonRpcSuccessResponse("1", "A"));
+
+    List<Future> responses = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      responses.add(nodeA.eventBus()
+          .request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request("whoami")));
+    }
+
+    CompositeFuture.all(responses).onComplete(context.succeeding(all -> context.verify(() -> {
+      for (int i = 0; i < all.size(); i++) {
+        assertThat(all.<Message<Object>>resultAt(i).body()).isEqualTo(expectedResponse);
+      }
+      context.completeNow();
+    })));
+  }
+
+  @Test
+  public void callsShouldFallBackToRemoteInstance(VertxTestContext context) {
+    String expectedResponse = Json.encode(new JsonRpcSuccessResponse("1", "B"));
+
+    nodeA.eventBus().request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request("remote"),
+        context.succeeding(resp -> context.verify(() -> {
+          assertThat(resp.body()).isEqualTo(expectedResponse);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void callsShouldFailOverWhenInstanceIsGone(VertxTestContext context) {
+    String expectedResponse = Json.encode(new JsonRpcSuccessResponse("1", "B"));
+    dropLeaveAnnouncements();
+
+    nodeA.undeploy(localRegistry)
+        .compose(v -> nodeA.eventBus().request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS,
+            request("whoami")))
+        .onComplete(context.succeeding(resp -> context.verify(() -> {
+          assertThat(resp.body()).isEqualTo(expectedResponse);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void callsToMethodWithoutInstancesShouldNotBeFound(VertxTestContext context) {
+    dropLeaveAnnouncements();
+
+    nodeB.undeploy(remoteOnlyRegistry)
+        .compose(v -> nodeA.eventBus().<String>request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS,
+            request("remote")))
+        .onComplete(context.succeeding(resp -> context.verify(() -> {
+          assertThat(new JsonObject(resp.body()).getJsonObject("error").getInteger("code"))
+              .isEqualTo(-32601);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void callsShouldGoToTheRemoteInstanceWithFewestCallsInFlight(VertxTestContext context) {
+    Promise<Void> heldCall = Promise.promise();
+    List<Message<Object>> held = new ArrayList<>();
+
+    // two remote instances of 'load', one of them never answers
+    CompositeFuture.all(
+        fakeInstance("fast", msg -> msg.reply(Json.encode(new JsonRpcResult("fast")))),
+        fakeInstance("held", msg -> {
+          held.add(msg);
+          heldCall.tryComplete();
+        }))
+        .compose(v -> {
+          announce("fast");
+          return callUntilAnswered();
+        })
+        .compose(v -> {
+          // calls alternate between instances without calls in flight, until one is held
+          announce("held");
+          callUntilHeld(heldCall.future());
+          return heldCall.future();
+        })
+        .compose(v -> callInSequence(10, new ArrayList<>()))
+        .onComplete(context.succeeding(results -> context.verify(() -> {
+          assertThat(results).hasSize(10).containsOnly("fast");
+          assertThat(held).hasSize(1);
+          context.completeNow();
+        })));
+  }
+
+  private Future<Void> fakeInstance(String id, Handler<Message<Object>> handler) {
+    Promise<Void> registered = Promise.promise();
+    nodeB.eventBus().consumer(JsonRpcClusterRouter.instanceAddress(
+        JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "load", id), handler)
+        .completionHandler(registered);
+    return registered.future();
+  }
+
+  private void announce(String id) {
+    nodeA.eventBus().publish(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS, new JsonObject()
+        .put("instance", id)
+        .put("node", "elsewhere")
+        .put("methods", new JsonArray().add("load")));
+  }
+
+  /**
+   * Calls 'load' until the router knows an instance of it, rather than answering not found.
+   */
+  private Future<Void> callUntilAnswered() {
+    return call()
+        .compose(result -> result == null ? callUntilAnswered() : Future.succeededFuture());
+  }
+
+  private void callUntilHeld(Future<Void> heldCall) {
+    call().onSuccess(result -> {
+      if (!heldCall.isComplete()) {
+        callUntilHeld(heldCall);
+      }
+    });
+  }
+
+  private Future<List<String>> callInSequence(int calls, List<String> results) {
+    if (calls == 0) {
+      return Future.succeededFuture(results);
+    }
+    return call().compose(result -> {
+      results.add(result);
+      return callInSequence(calls - 1, results);
+    });
+  }
+
+  /**
+   * The result of a call to 'load', or null if it wasn't found.
+   */
+  private Future<String> call() {
+    return nodeA.eventBus().<String>request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request("load"))
+        .map(resp -> new JsonObject(resp.body()).getString("result"));
+  }
+
+  /**
+   * Registries on both nodes serve 'whoami', only node B serves 'remote'. Completes once node A has
+   * seen the announcements of the three registries.
+   */
+  private Future<Void> deployAndAwaitAnnouncements() {
+    Promise<Void> announced = Promise.promise();
+    Promise<Void> deployed = Promise.promise();
+    Set<String> seen = new HashSet<>();
+    nodeA.eventBus().<JsonObject>consumer(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS, msg -> {
+      seen.add(msg.body().getString("instance"));
+      if (seen.size() == 3) {
+        // let the router handle the same announcement before the test starts
+        nodeA.setTimer(100, t -> announced.tryComplete());
+      }
+    }).completionHandler(ar -> CompositeFuture.all(
+        nodeA.deployVerticle(new JsonRpcMessageProcessor(new JsonRpcBatchPolicy(),
+            JsonRpcDispatchMode.CLUSTERED)),
+        nodeA.deployVerticle(registry(method("whoami", "A"))),
+        nodeB.deployVerticle(registry(method("whoami", "B"))),
+        nodeB.deployVerticle(registry(method("remote", "B"))))
+        .onSuccess(all -> {
+          localRegistry = all.resultAt(1);
+          remoteOnlyRegistry = all.resultAt(3);
+        })
+        .<Void>mapEmpty()
+        .onComplete(deployed));
+    return CompositeFuture.all(announced.future(), deployed.future()).mapEmpty();
+  }
+
+  /**
+   * Loses the announcements of the registries leaving, as if they had crashed. Their instances stay
+   * known to the router of node A until they expire.
+   */
+  private void dropLeaveAnnouncements() {
+    nodeA.eventBus().addInboundInterceptor(delivery -> {
+      if (delivery.message().address().equals(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS)
+          && ((JsonObject) delivery.message().body()).getJsonArray("methods").isEmpty()) {
+        return;
+      }
+      delivery.next();
+    });
+  }
+
+  private JsonRpcMethodRegistry registry(JsonRpcMethod method) {
+    JsonRpcMethodRegistry registry = new JsonRpcMethodRegistry(JsonRpcDispatchMode.CLUSTERED);
+    registry.addMethod(method);
+    return registry;
+  }
+
+  private JsonRpcMethod method(String name, String node) {
+    return new JsonRpcMethod() {
+      @Override
+      public String name() {
+        return name;
+      }
+
+      @Override
+      public JsonRpcResult process(List<?> params) {
+        return new JsonRpcResult(node);
+      }
+    };
+  }
+
+  private Future<Vertx> clusteredVertx() {
+    return Vertx.clusteredVertx(new VertxOptions().setClusterManager(new FakeClusterManager()));
+  }
+
+  private String request(String method) {
+    return "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"" + method + "\"}";
+  }
+}
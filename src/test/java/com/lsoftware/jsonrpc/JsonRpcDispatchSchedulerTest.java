@@ -0,0 +1,128 @@
+package com.lsoftware.jsonrpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.JsonRpcDispatchScheduler.DispatchUnit;
+import com.lsoftware.jsonrpc.monitoring.LatencyHistogram;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class JsonRpcDispatchSchedulerTest {
+
+  private final List<String> dispatched = new ArrayList<>();
+  private final List<Promise<List<DispatchUnit>>> inFlight = new ArrayList<>();
+
+  @Test
+  public void batchShouldNotExceedMaxConcurrency() {
+    JsonRpcDispatchScheduler scheduler = new JsonRpcDispatchScheduler(
+        new JsonRpcBatchPolicy().setMaxBatchConcurrency(2));
+
+    scheduler.submit("c1", units("a", 5));
+    assertThat(dispatched).containsExactly("a0", "a1");
+
+    completeOldest();
+    assertThat(dispatched).containsExactly("a0", "a1", "a2");
+    assertThat(inFlight).hasSize(2);
+
+    completeAll();
+    assertThat(dispatched).containsExactly("a0", "a1", "a2", "a3", "a4");
+  }
+
+  @Test
+  public void followUpUnitsShouldBeDispatchedWithinTheSameWindow() {
+    JsonRpcDispatchScheduler scheduler = new JsonRpcDispatchScheduler(
+        new JsonRpcBatchPolicy().setMaxBatchConcurrency(1));
+
+    List<DispatchUnit> followUps = units("f", 2);
+    scheduler.submit("c1", Collections.singletonList(() -> {
+      dispatched.add("group");
+      return Future.succeededFuture(followUps);
+    }));
+
+    assertThat(dispatched).containsExactly("group", "f0");
+    completeAll();
+    assertThat(dispatched).containsExactly("group", "f0", "f1");
+  }
+
+  @Test
+  public void fairShareShouldInterleaveConnections() {
+    JsonRpcDispatchScheduler scheduler = new JsonRpcDispatchScheduler(new JsonRpcBatchPolicy()
+        .setFairShare(true)
+        .setMaxInFlight(1));
+
+    scheduler.submit("bulk", units("b", 3));
+    scheduler.submit("interactive", units("i", 1));
+
+    completeAll();
+    assertThat(dispatched).containsExactly("b0", "i0", "b1", "b2");
+  }
+
+  @Test
+  public void batchesWithFullWindowShouldBeSkipped() {
+    JsonRpcDispatchScheduler scheduler = new JsonRpcDispatchScheduler(new JsonRpcBatchPolicy()
+        .setFairShare(true)
+        .setMaxBatchConcurrency(1)
+        .setMaxInFlight(4));
+
+    scheduler.submit("c1", units("a", 2));
+    scheduler.submit("c1", units("b", 2));
+    scheduler.submit("c2", units("c", 2));
+    assertThat(dispatched).containsExactly("a0", "b0", "c0");
+
+    completeOldest();
+    assertThat(dispatched).containsExactly("a0", "b0", "c0", "a1");
+
+    completeAll();
+    assertThat(dispatched).containsExactly("a0", "b0", "c0", "a1", "b1", "c1");
+  }
+
+  @Test
+  public void priorityLanesShouldShareSlotsByWeight() {
+    Map<JsonRpcPriority, LatencyHistogram> latencies = new EnumMap<>(JsonRpcPriority.class);
+    JsonRpcDispatchScheduler scheduler = new JsonRpcDispatchScheduler(
+        new JsonRpcBatchPolicy().setMaxInFlight(1),
+        new JsonRpcPriorityPolicy()
+            .setMethodPriority("time", JsonRpcPriority.HIGH)
+            .setWeight(JsonRpcPriority.HIGH, 2)
+            .setWeight(JsonRpcPriority.LOW, 1),
+        priority -> latencies.computeIfAbsent(priority, p -> new LatencyHistogram()));
+
+    scheduler.submit("c1", JsonRpcPriority.LOW, units("l", 4));
+    scheduler.submit("c2", JsonRpcPriority.HIGH, units("h", 4));
+
+    completeAll();
+    assertThat(dispatched).containsExactly("l0", "h0", "l1", "h1", "h2", "l2", "h3", "l3");
+    assertThat(latencies.get(JsonRpcPriority.HIGH).count()).isEqualTo(4);
+    assertThat(latencies.get(JsonRpcPriority.LOW).count()).isEqualTo(4);
+  }
+
+  private List<DispatchUnit> units(String prefix, int count) {
+    List<DispatchUnit> units = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String name = prefix + i;
+      units.add(() -> {
+        dispatched.add(name);
+        Promise<List<DispatchUnit>> promise = Promise.promise();
+        inFlight.add(promise);
+        return promise.future();
+      });
+    }
+    return units;
+  }
+
+  private void completeOldest() {
+    inFlight.remove(0).complete(Collections.emptyList());
+  }
+
+  private void completeAll() {
+    while (!inFlight.isEmpty()) {
+      completeOldest();
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.lsoftware.jsonrpc;
+
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.api.JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
+import com.lsoftware.jsonrpc.http.HttpJsonRpcServer;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import com.lsoftware.jsonrpc.websockets.WebSocketJsonRpcServer;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.UpgradeRejectedException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class JsonRpcDrainTest {
+
+  private static final String REQUEST = "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"slow\"}";
+
+  @Test
+  public void drainingProcessorShouldAnswerCallsInFlightBeforeStopping(Vertx vertx,
+      VertxTestContext context) {
+    String expectedResponse = Json.encode(new JsonRpcSuccessResponse("1", "done"));
+    List<String> events = new ArrayList<>();
+
+    vertx.eventBus().consumer(JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "slow",
+        msg -> vertx.setTimer(200, t -> msg.reply(Json.encode(new JsonRpcResult("done")))));
+
+    vertx.deployVerticle(new JsonRpcMessageProcessor()).onComplete(context.succeeding(id -> {
+      vertx.eventBus().request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, REQUEST,
+          context.succeeding(resp -> context.verify(() -> {
+            assertThat(resp.body()).isEqualTo(expectedResponse);
+            events.add("response");
+          })));
+
+      vertx.setTimer(50, t -> {
+        JsonRpcDrain drain = JsonRpcDrain.get(vertx);
+        drain.start(5000);
+        assertThat(drain.isDraining()).isTrue();
+        vertx.undeploy(id).onComplete(context.succeeding(v -> context.verify(() -> {
+          events.add("undeployed");
+          assertThat(events).containsExactly("response", "undeployed");
+          context.completeNow();
+        })));
+      });
+    }));
+  }
+
+  @Test
+  public void drainingHttpServerShouldFailHealthAndRejectNewRequests(Vertx vertx,
+      VertxTestContext context) {
+    HttpClient client = vertx.createHttpClient();
+
+    CompositeFuture.all(
+        vertx.deployVerticle(new JsonRpcMessageProcessor()),
+        vertx.deployVerticle(new HttpJsonRpcServer()))
+        .compose(v -> {
+          JsonRpcDrain.get(vertx).start(5000);
+          return client.request(HttpMethod.GET, 8080, "localhost", "/health");
+        })
+        .compose(HttpClientRequest::send)
+        .compose(health -> health.body().onSuccess(body -> context.verify(() -> {
+          assertThat(health.statusCode()).isEqualTo(503);
+          assertThat(new JsonObject(body).getString("status")).isEqualTo("DRAINING");
+        })))
+        .compose(v -> client.request(HttpMethod.POST, 8080, "localhost", "/"))
+        .compose(request -> request.send(REQUEST))
+        .onComplete(context.succeeding(response -> context.verify(() -> {
+          assertThat(response.statusCode()).isEqualTo(503);
+          assertThat(response.getHeader("Connection")).isEqualTo("close");
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void drainingHttpServerShouldAnswerRequestsStillSendingTheirBody(Vertx vertx,
+      VertxTestContext context) {
+    List<String> events = new ArrayList<>();
+    vertx.eventBus().consumer(JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "slow",
+        msg -> msg.reply(Json.encode(new JsonRpcResult("done"))));
+    HttpClient client = vertx.createHttpClient();
+
+    vertx.deployVerticle(new JsonRpcMessageProcessor())
+        .compose(id -> vertx.deployVerticle(new HttpJsonRpcServer()))
+        .compose(id -> client.request(HttpMethod.POST, 8080, "localhost", "/").map(request -> {
+          request.setChunked(true);
+          request.response().compose(response -> response.body().onSuccess(body ->
+              context.verify(() -> {
+                assertThat(response.getHeader("Connection")).isEqualTo("close");
+                assertThat(new JsonObject(body).getString("result")).isEqualTo("done");
+                events.add("response");
+              })));
+          // the first half of the body, the drain starts before the rest is sent
+          request.write(REQUEST.substring(0, REQUEST.length() / 2));
+          vertx.setTimer(50, t -> {
+            JsonRpcDrain.get(vertx).start(5000);
+            vertx.undeploy(id).onComplete(context.succeeding(v -> context.verify(() -> {
+              assertThat(events).containsExactly("response");
+              context.completeNow();
+            })));
+            vertx.setTimer(100, t2 -> request.end(REQUEST.substring(REQUEST.length() / 2)));
+          });
+          return id;
+        }))
+        .onFailure(context::failNow);
+  }
+
+  @Test
+  public void drainingWebSocketServerShouldCloseConnectionsAfterPendingResponses(Vertx vertx,
+      VertxTestContext context) {
+    List<String> events = new ArrayList<>();
+    vertx.eventBus().consumer(JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "slow",
+        msg -> vertx.setTimer(200, t -> msg.reply(Json.encode(new JsonRpcResult("done")))));
+    HttpClient client = vertx.createHttpClient();
+
+    vertx.deployVerticle(new JsonRpcMessageProcessor())
+        .compose(id -> vertx.deployVerticle(new WebSocketJsonRpcServer()))
+        .compose(id -> client.webSocket(8081, "localhost", "/").map(websocket -> {
+          websocket.textMessageHandler(text -> events.add("response"));
+          websocket.closeHandler(v -> events.add("closed " + websocket.closeStatusCode()));
+          websocket.writeTextMessage(REQUEST);
+          return id;
+        }))
+        .onComplete(context.succeeding(id -> vertx.setTimer(50, t -> {
+          JsonRpcDrain.get(vertx).start(5000);
+          client.webSocket(8081, "localhost", "/").onComplete(context.failing(e -> {
+            context.verify(() -> assertThat(((UpgradeRejectedException) e).getStatus())
+                .isEqualTo(503));
+            vertx.undeploy(id).onComplete(context.succeeding(v -> context.verify(() -> {
+              assertThat(events).containsExactly("response", "closed 1001");
+              context.completeNow();
+            })));
+          }));
+        })));
+  }
+
+  @Test
+  public void drainingRegistryShouldWaitForCallsQueuedForAWorker(VertxTestContext context) {
+    List<String> events = new ArrayList<>();
+    JsonRpcMethodRegistry registry = new JsonRpcMethodRegistry(JsonRpcDispatchMode.PER_METHOD,
+        new JsonRpcBlockingPolicy()
+            .setBlockingThresholdMs(10)
+            .setDemoteBlockingMethods(true)
+            .setDemoteAfter(1));
+    registry.addMethod(new JsonRpcMethod() {
+      @Override
+      public String name() {
+        return "slow";
+      }
+
+      @Override
+      public JsonRpcResult process(List<?> params) {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return new JsonRpcResult("done");
+      }
+    });
+    String address = JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "slow";
+
+    // a single worker thread, so that the second demoted call waits for the first one
+    Vertx worker = Vertx.vertx(new VertxOptions().setWorkerPoolSize(1));
+    worker.deployVerticle(registry)
+        .compose(id -> worker.eventBus().request(address, REQUEST).map(id))
+        .compose(id -> {
+          assertThat(JsonRpcMetrics.get(worker).method("slow").isDemoted()).isTrue();
+          for (int i = 0; i < 2; i++) {
+            worker.eventBus().request(address, REQUEST, ar -> events.add("response"));
+          }
+          Promise<Void> undeployed = Promise.promise();
+          worker.setTimer(50, t -> {
+            context.verify(() ->
+                assertThat(JsonRpcMetrics.get(worker).registryInFlight().sum()).isEqualTo(2));
+            JsonRpcDrain.get(worker).start(5000);
+            worker.undeploy(id).onSuccess(v -> events.add("undeployed")).onComplete(undeployed);
+          });
+          return undeployed.future();
+        })
+        .onComplete(ar -> worker.close())
+        .onComplete(context.succeeding(v -> context.verify(() -> {
+          assertThat(events).containsExactly("response", "response", "undeployed");
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void notDrainingShouldNotWait(Vertx vertx, VertxTestContext context) {
+    JsonRpcDrain drain = JsonRpcDrain.get(vertx);
+
+    drain.awaitIdle("calls", () -> 1).onComplete(context.succeeding(v -> context.verify(() -> {
+      assertThat(drain.isDraining()).isFalse();
+      context.completeNow();
+    })));
+  }
+}
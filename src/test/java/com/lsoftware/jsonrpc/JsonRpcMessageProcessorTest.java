@@ -1,24 +1,39 @@
 package com.lsoftware.jsonrpc;
 
 import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS;
 import static com.lsoftware.jsonrpc.api.JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.lsoftware.jsonrpc.api.JsonRpcBatchMethod;
 import com.lsoftware.jsonrpc.api.JsonRpcResult;
 import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
 import com.lsoftware.jsonrpc.api.error.InvalidParamsJsonRpcError;
 import com.lsoftware.jsonrpc.api.error.JsonRpcError;
 import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponse;
 import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcTracing;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -45,6 +60,29 @@ public class JsonRpcMessageProcessorTest {
         assertExpectedResponse(context, parseErrorResponse));
   }
 
+  @Test
+  public void failedParseShouldBeRecorded(VertxTestContext context) throws Exception {
+    Recording recording = new Recording();
+    recording.start();
+    Path file = Files.createTempFile("parse", ".jfr");
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, "{", context.succeeding(reply ->
+        context.verify(() -> {
+          recording.stop();
+          recording.dump(file);
+          recording.close();
+          List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+          Files.delete(file);
+          assertThat(events)
+              .filteredOn(e -> e.getEventType().getName().equals("com.lsoftware.jsonrpc.Parse"))
+              .singleElement().satisfies(event -> {
+                assertThat(event.getInt("errorCode")).isEqualTo(-32700);
+                assertThat(event.getLong("chars")).isEqualTo(1);
+              });
+          context.completeNow();
+        })));
+  }
+
   @Test
   public void invalidJsonRpcRequestShouldReturnInvalidRequest(VertxTestContext context) {
     String expectedInvalidRequestResponse = Json.encode(JsonRpcErrorResponses.invalidRequest());
@@ -117,6 +155,18 @@ public class JsonRpcMessageProcessorTest {
         assertExpectedResponse(context, expectedInvalidRequestResponse));
   }
 
+  @Test
+  public void batchRequestOverMaxLengthShouldReturnBatchTooLarge(VertxTestContext context) {
+    int maxBatchLength = JsonRpcBatchPolicy.DEFAULT_MAX_BATCH_LENGTH;
+    String batchRequest = "[" + String.join(",", Collections.nCopies(maxBatchLength + 1, "1")) + "]";
+    String expectedResponse = Json.encode(JsonRpcErrorResponses.batchTooLarge(maxBatchLength));
+
+    prepareResponse(msg -> context.failNow(new AssertionError("Unexpected dispatch")));
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, batchRequest,
+        assertExpectedResponse(context, expectedResponse));
+  }
+
   @Test
   public void batchRequestWithOneInvalidRequestsShouldReturnInvalidRequestResponseObject(
       VertxTestContext context) {
@@ -170,10 +220,81 @@ public class JsonRpcMessageProcessorTest {
         assertExpectedResponse(context, expectedBatchResponse));
   }
 
+  @Test
+  public void batchRequestToBatchMethodShouldBeDispatchedOnce(Vertx vertx,
+      VertxTestContext context) {
+    String batchRequest = "[{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"aMethod\"},"
+        + "{\"jsonrpc\": \"2.0\", \"id\": 2, \"method\": \"otherMethod\"},"
+        + "{\"jsonrpc\": \"2.0\", \"id\": 3, \"method\": \"aMethod\"}]";
+
+    String expectedBatchResponse = "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"first\"}"
+        + ",{\"jsonrpc\":\"2.0\",\"id\":\"2\",\"result\":\"other\"}"
+        + ",{\"jsonrpc\":\"2.0\",\"id\":\"3\",\"result\":\"second\"}]";
+
+    // single calls are only expected until the announcement reaches the processor
+    AtomicBoolean batchDispatched = new AtomicBoolean();
+    prepareResponse(msg -> {
+      if (batchDispatched.get()) {
+        context.failNow(new AssertionError("Unexpected single dispatch"));
+      } else {
+        msg.reply(Json.encode(new JsonRpcResult("single")));
+      }
+    });
+    eventBus.consumer(JsonRpcBatchMethod.batchEventBusAddress("aMethod"), msg -> {
+      batchDispatched.set(true);
+      msg.reply(Json.encode(Arrays.asList(
+          new JsonRpcResult("first"), new JsonRpcResult("second"))));
+    });
+    eventBus.consumer(JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "otherMethod",
+        msg -> msg.reply(Json.encode(new JsonRpcResult("other"))));
+
+    // batch addresses are only used for the methods registries announce as batch-capable
+    eventBus.publish(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS, new JsonObject()
+        .put("instance", "aRegistry")
+        .put("methods", new JsonArray().add("aMethod").add("otherMethod"))
+        .put("batchMethods", new JsonArray().add("aMethod")));
+    untilBatchDispatched(batchDispatched).onComplete(context.succeeding(v ->
+        eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, batchRequest,
+            assertExpectedResponse(context, expectedBatchResponse))));
+  }
+
+  @Test
+  public void batchRequestToOtherMethodShouldBeDispatchedPerCall(VertxTestContext context) {
+    String batchRequest = "[" + request() + "," + request() + "]";
+    String expectedBatchResponse = "[{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"single\"}"
+        + ",{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"result\":\"single\"}]";
+
+    // a batch address no registry has announced isn't used
+    eventBus.consumer(JsonRpcBatchMethod.batchEventBusAddress("aMethod"),
+        msg -> context.failNow(new AssertionError("Unexpected batch dispatch")));
+    prepareResponse(msg -> msg.reply(Json.encode(new JsonRpcResult("single"))));
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, batchRequest,
+        assertExpectedResponse(context, expectedBatchResponse));
+  }
+
+  @Test
+  public void traceIdShouldBePropagatedToMethod(VertxTestContext context) {
+    String expectedResponse = Json.encode(new JsonRpcSuccessResponse("1", "aTrace"));
+
+    prepareResponse(msg -> msg.reply(Json.encode(
+        new JsonRpcResult(msg.headers().get(JsonRpcTracing.TRACE_ID_HEADER)))));
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request(),
+        new DeliveryOptions().addHeader(JsonRpcTracing.TRACE_ID_HEADER, "aTrace"),
+        assertExpectedResponse(context, expectedResponse));
+  }
+
   private void prepareResponse(Handler<Message<Object>> handler) {
     eventBus.consumer(JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "aMethod", handler);
   }
 
+  private Future<Void> untilBatchDispatched(AtomicBoolean batchDispatched) {
+    String probe = "[" + request() + "," + request() + "]";
+    return eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, probe).compose(reply ->
+        batchDispatched.get() ? Future.succeededFuture() : untilBatchDispatched(batchDispatched));
+  }
+
   private String request() {
     return "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"aMethod\"}";
   }
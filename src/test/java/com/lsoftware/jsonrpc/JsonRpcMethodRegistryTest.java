@@ -0,0 +1,272 @@
+package com.lsoftware.jsonrpc;
+
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_DISPATCHER_BATCH_EVENTBUS_ADDRESS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.api.JsonRpcBatchMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcCodec;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.JsonRpcSuccessResponse;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import com.lsoftware.jsonrpc.methods.MathMethodsGroup;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics;
+import com.lsoftware.jsonrpc.monitoring.JsonRpcMetrics.MethodStats;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class JsonRpcMethodRegistryTest {
+
+  private EventBus eventBus;
+  private JsonRpcMethodRegistry registry;
+
+  @BeforeEach
+  public void before(Vertx vertx, VertxTestContext context) {
+    eventBus = vertx.eventBus();
+
+    registry = new JsonRpcMethodRegistry(JsonRpcDispatchMode.DISPATCHER);
+    registry.addMethodGroup(new MathMethodsGroup());
+
+    CompositeFuture.all(
+        vertx.deployVerticle(new JsonRpcMessageProcessor(new JsonRpcBatchPolicy(),
+            JsonRpcDispatchMode.DISPATCHER)),
+        vertx.deployVerticle(registry))
+        .onComplete(context.succeedingThenComplete());
+  }
+
+  @Test
+  public void dispatcherShouldRouteToMethod(VertxTestContext context) {
+    String expectedResponse = Json.encode(new JsonRpcSuccessResponse("1", 5));
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request("add"),
+        context.succeeding(resp -> context.verify(() -> {
+          assertThat(resp.body()).isEqualTo(expectedResponse);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void dispatcherShouldRouteBatchToMethod(VertxTestContext context) {
+    String expectedResponse = Json.encode(Arrays.asList(
+        new JsonRpcSuccessResponse("1", 5), new JsonRpcSuccessResponse("1", 5)));
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS,
+        "[" + request("add") + "," + request("add") + "]",
+        context.succeeding(resp -> context.verify(() -> {
+          assertThat(resp.body()).isEqualTo(expectedResponse);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void failedCallOfABatchShouldOnlyFailItself(VertxTestContext context) {
+    registry.addMethod(failingOnZero());
+    String batch = "[" + request("check", 1, 1) + "," + request("check", 2, 0) + ","
+        + request("check", 3, 3) + "]";
+
+    eventBus.<String>request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, batch,
+        context.succeeding(resp -> context.verify(() -> {
+          JsonArray responses = new JsonArray(resp.body());
+          assertThat(responses.getJsonObject(0).getInteger("result")).isEqualTo(1);
+          assertThat(responses.getJsonObject(1).getJsonObject("error").getInteger("code"))
+              .isEqualTo(-32603);
+          assertThat(responses.getJsonObject(2).getInteger("result")).isEqualTo(3);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void plainMethodReceivingABatchShouldFailEachCallOnItsOwn(VertxTestContext context) {
+    registry.addMethod(failingOnZero());
+    // a router that takes the method for a batch method, e.g. while the registries differ
+    String batch = "[" + request("check", 1, 1) + "," + request("check", 2, 0) + "]";
+
+    eventBus.<String>request(JSONRPC_DISPATCHER_BATCH_EVENTBUS_ADDRESS, batch,
+        context.succeeding(resp -> context.verify(() -> {
+          JsonRpcResult[] results = JsonRpcCodec.decodeResults(resp.body());
+          assertThat(results[0].getResult()).isEqualTo(1);
+          assertThat(results[1].getError().getCode()).isEqualTo(-32603);
+          assertThat(results[1].getError().getData()).isEqualTo("zero");
+          context.completeNow();
+        })));
+  }
+
+  private JsonRpcMethod failingOnZero() {
+    return new JsonRpcMethod() {
+      @Override
+      public String name() {
+        return "check";
+      }
+
+      @Override
+      public JsonRpcResult process(List<?> params) {
+        if ((Integer) params.get(0) == 0) {
+          throw new IllegalArgumentException("zero");
+        }
+        return new JsonRpcResult(params.get(0));
+      }
+    };
+  }
+
+  @Test
+  public void methodAddedAfterStartShouldBeAvailable(VertxTestContext context) {
+    String expectedResponse = Json.encode(new JsonRpcSuccessResponse("1", "replaced"));
+
+    registry.addMethod(new JsonRpcMethod() {
+      @Override
+      public String name() {
+        return "add";
+      }
+
+      @Override
+      public JsonRpcResult process(List<?> params) {
+        return new JsonRpcResult("replaced");
+      }
+    });
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request("add"),
+        context.succeeding(resp -> context.verify(() -> {
+          assertThat(resp.body()).isEqualTo(expectedResponse);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void methodRemovedAfterStartShouldReturnMethodNotFound(VertxTestContext context) {
+    String expectedResponse = Json.encode(JsonRpcErrorResponses.methodNotFound("1"));
+
+    registry.removeMethod("add");
+
+    eventBus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request("add"),
+        context.succeeding(resp -> context.verify(() -> {
+          assertThat(resp.body()).isEqualTo(expectedResponse);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void blockingMethodShouldBeDemotedToWorkerPool(Vertx vertx, VertxTestContext context) {
+    List<Boolean> onWorker = new ArrayList<>();
+    JsonRpcMethodRegistry blockingRegistry = new JsonRpcMethodRegistry(
+        JsonRpcDispatchMode.PER_METHOD, new JsonRpcBlockingPolicy()
+        .setBlockingThresholdMs(10)
+        .setDemoteBlockingMethods(true)
+        .setDemoteAfter(2));
+    blockingRegistry.addMethod(new JsonRpcMethod() {
+      @Override
+      public String name() {
+        return "sleep";
+      }
+
+      @Override
+      public JsonRpcResult process(List<?> params) {
+        synchronized (onWorker) {
+          onWorker.add(Context.isOnWorkerThread());
+        }
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return new JsonRpcResult("done");
+      }
+    });
+
+    String address = JsonRpcMethod.JSONRPC_METHOD_EVENTBUS_ADDRESS_PREFIX + "sleep";
+    vertx.deployVerticle(blockingRegistry)
+        .compose(id -> eventBus.request(address, request("sleep")))
+        .compose(resp -> eventBus.request(address, request("sleep")))
+        .compose(resp -> eventBus.request(address, request("sleep")))
+        .onComplete(context.succeeding(resp -> context.verify(() -> {
+          MethodStats stats = JsonRpcMetrics.get(vertx).method("sleep");
+          assertThat(stats.isDemoted()).isTrue();
+          assertThat(stats.blockingCalls()).isEqualTo(2);
+          assertThat(onWorker).containsExactly(false, false, true);
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void batchMethodShouldTakeItsCallsOfABatchAtOnce(VertxTestContext context) {
+    List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    JsonRpcMethodRegistry batchRegistry = new JsonRpcMethodRegistry();
+    batchRegistry.addMethodGroup(new MathMethodsGroup());
+    batchRegistry.addMethod(new JsonRpcBatchMethod() {
+      @Override
+      public String name() {
+        return "echo";
+      }
+
+      @Override
+      public List<JsonRpcResult> processBatch(List<JsonRpcRequest> requests) {
+        batchSizes.add(requests.size());
+        List<JsonRpcResult> results = new ArrayList<>();
+        requests.forEach(request -> results.add(new JsonRpcResult(request.getId())));
+        return results;
+      }
+    });
+    String batch = "[" + request("echo", 1) + "," + request("add", 2) + ","
+        + request("echo", 3) + "," + request("add", 4) + "]";
+    String expectedResponse = Json.encode(Arrays.asList(
+        new JsonRpcSuccessResponse("1", "1"), new JsonRpcSuccessResponse("2", 5),
+        new JsonRpcSuccessResponse("3", "3"), new JsonRpcSuccessResponse("4", 5)));
+
+    // the processors of this test dispatch through the dispatcher address
+    Vertx perMethod = Vertx.vertx();
+    CompositeFuture.all(
+        perMethod.deployVerticle(new JsonRpcMessageProcessor()),
+        perMethod.deployVerticle(batchRegistry))
+        .compose(v -> untilBatchDispatched(perMethod.eventBus(), batchSizes))
+        .compose(v -> {
+          batchSizes.clear();
+          return perMethod.eventBus().request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, batch);
+        })
+        .onComplete(ar -> perMethod.close())
+        .onComplete(context.succeeding(resp -> context.verify(() -> {
+          assertThat(resp.body()).isEqualTo(expectedResponse);
+          // the calls to 'add' were dispatched one by one
+          assertThat(batchSizes).containsExactly(2);
+          context.completeNow();
+        })));
+  }
+
+  /**
+   * Sends a batch of two 'echo' calls until the processor has learnt that 'echo' takes batches.
+   */
+  private Future<Void> untilBatchDispatched(EventBus bus, List<Integer> batchSizes) {
+    String probe = "[" + request("echo", 1) + "," + request("echo", 2) + "]";
+    return bus.request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, probe).compose(reply ->
+        batchSizes.contains(2) ? Future.succeededFuture() : untilBatchDispatched(bus, batchSizes));
+  }
+
+  private String request(String method, int id) {
+    return "{\"jsonrpc\": \"2.0\", \"id\": " + id + ", \"method\": \"" + method
+        + "\", \"params\": [2, 3]}";
+  }
+
+  private String request(String method, int id, int param) {
+    return "{\"jsonrpc\": \"2.0\", \"id\": " + id + ", \"method\": \"" + method
+        + "\", \"params\": [" + param + "]}";
+  }
+
+  private String request(String method) {
+    return "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"" + method + "\", \"params\": [2, 3]}";
+  }
+}
@@ -0,0 +1,71 @@
+package com.lsoftware.jsonrpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class JsonRpcRateLimiterTest {
+
+  @Test
+  public void clientLimitShouldAllowBurstThenReject() {
+    JsonRpcRateLimiter limiter = new JsonRpcRateLimiter(
+        new JsonRpcRateLimitPolicy().setClientLimit(0.001, 3), 1);
+
+    assertThat(limiter.tryAcquire("c1", "add")).isTrue();
+    assertThat(limiter.tryAcquire("c1", "subtract")).isTrue();
+    assertThat(limiter.tryAcquire("c1", "add")).isTrue();
+    assertThat(limiter.tryAcquire("c1", "add")).isFalse();
+
+    assertThat(limiter.tryAcquire("c2", "add")).isTrue();
+  }
+
+  @Test
+  public void methodLimitShouldOnlyApplyToThatMethod() {
+    JsonRpcRateLimiter limiter = new JsonRpcRateLimiter(
+        new JsonRpcRateLimitPolicy().setMethodLimit("add", 0.001, 1), 1);
+
+    assertThat(limiter.tryAcquire("c1", "add")).isTrue();
+    assertThat(limiter.tryAcquire("c1", "add")).isFalse();
+    assertThat(limiter.tryAcquire("c1", "subtract")).isTrue();
+    assertThat(limiter.tryAcquire("c2", "add")).isTrue();
+  }
+
+  @Test
+  public void callRejectedByClientLimitShouldNotConsumeMethodLimit() {
+    JsonRpcRateLimiter limiter = new JsonRpcRateLimiter(new JsonRpcRateLimitPolicy()
+        .setClientLimit(0.001, 1)
+        .setMethodLimit("add", 0.001, 2), 1);
+
+    assertThat(limiter.tryAcquire("c1", "subtract")).isTrue();
+    assertThat(limiter.tryAcquire("c1", "add")).isFalse();
+    assertThat(limiter.tryAcquire("c1", "add")).isFalse();
+    assertThat(limiter.size()).isEqualTo(2);
+
+    // the method bucket still holds its whole burst, so it is as good as new
+    limiter.evictIdleBuckets();
+    assertThat(limiter.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void stripeShouldGetItsShareOfTheBurst() {
+    JsonRpcRateLimiter limiter = new JsonRpcRateLimiter(
+        new JsonRpcRateLimitPolicy().setClientLimit(0.001, 4), 2);
+
+    assertThat(limiter.tryAcquire("c1", "add")).isTrue();
+    assertThat(limiter.tryAcquire("c1", "add")).isTrue();
+    assertThat(limiter.tryAcquire("c1", "add")).isFalse();
+  }
+
+  @Test
+  public void refilledBucketsShouldBeEvicted() throws InterruptedException {
+    JsonRpcRateLimiter limiter = new JsonRpcRateLimiter(
+        new JsonRpcRateLimitPolicy().setClientLimit(1000, 1), 1);
+
+    limiter.tryAcquire("c1", "add");
+    assertThat(limiter.size()).isEqualTo(1);
+
+    Thread.sleep(5);
+    limiter.evictIdleBuckets();
+    assertThat(limiter.size()).isZero();
+  }
+}
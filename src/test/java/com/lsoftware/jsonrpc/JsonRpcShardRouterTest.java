@@ -0,0 +1,160 @@
+package com.lsoftware.jsonrpc;
+
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
+import static com.lsoftware.jsonrpc.JsonRpcMethodRegistry.JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.JsonRpcShardKey;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class JsonRpcShardRouterTest {
+
+  private static final int REGISTRIES = 3;
+
+  private final Map<String, String> registries = new HashMap<>();
+
+  @BeforeEach
+  public void before(Vertx vertx, VertxTestContext context) {
+    Promise<Void> announced = Promise.promise();
+    Set<String> seen = new HashSet<>();
+    vertx.eventBus().<JsonObject>consumer(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS, msg -> {
+      seen.add(msg.body().getString("instance"));
+      if (seen.size() == REGISTRIES) {
+        // let the router handle the same announcement before the test starts
+        vertx.setTimer(100, t -> announced.tryComplete());
+      }
+    }).completionHandler(ar -> {
+      List<Future> deployments = new ArrayList<>();
+      deployments.add(vertx.deployVerticle(new JsonRpcMessageProcessor()));
+      for (int i = 0; i < REGISTRIES; i++) {
+        String owner = "registry-" + i;
+        JsonRpcMethodRegistry registry = new JsonRpcMethodRegistry();
+        registry.addMethod(sessionMethod(owner));
+        deployments.add(vertx.deployVerticle(registry).onSuccess(id -> registries.put(owner, id)));
+      }
+      CompositeFuture.all(deployments).onFailure(announced::tryFail);
+    });
+    announced.future().onComplete(context.succeedingThenComplete());
+  }
+
+  @Test
+  public void callsWithTheSameKeyShouldGoToTheSameInstance(Vertx vertx,
+      VertxTestContext context) {
+    List<Future> responses = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      responses.add(vertx.eventBus().request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS,
+          request(i, "session-" + (i % 10))));
+    }
+
+    CompositeFuture.all(responses).onComplete(context.succeeding(all -> context.verify(() -> {
+      Map<String, String> ownerByKey = new HashMap<>();
+      for (int i = 0; i < all.size(); i++) {
+        String owner = new JsonObject(all.<Message<String>>resultAt(i).body()).getString("result");
+        String previous = ownerByKey.put("session-" + (i % 10), owner);
+        assertThat(previous == null || previous.equals(owner)).isTrue();
+      }
+      assertThat(new HashSet<>(ownerByKey.values()).size()).isGreaterThan(1);
+      context.completeNow();
+    })));
+  }
+
+  @Test
+  public void batchShouldBeSplitByShard(Vertx vertx, VertxTestContext context) {
+    vertx.eventBus().<String>request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, "[" + request(1, "a")
+        + "," + request(2, "b") + "," + request(3, "a") + "]", context.succeeding(resp ->
+        context.verify(() -> {
+          JsonArray results = new JsonArray(resp.body());
+          assertThat(results).hasSize(3);
+          assertThat(results.getJsonObject(2).getString("result"))
+              .isEqualTo(results.getJsonObject(0).getString("result"));
+          context.completeNow();
+        })));
+  }
+
+  @Test
+  public void onlyTheKeysOfAGoneInstanceShouldMove(Vertx vertx, VertxTestContext context) {
+    // lose the announcement of the registry leaving, as if it had crashed
+    vertx.eventBus().addInboundInterceptor(delivery -> {
+      if (!delivery.message().address().equals(JSONRPC_REGISTRY_ANNOUNCE_EVENTBUS_ADDRESS)) {
+        delivery.next();
+      }
+    });
+
+    Map<String, String> ownerBefore = new HashMap<>();
+    Map<String, String> ownerAfter = new HashMap<>();
+    sessions(vertx, ownerBefore)
+        .compose(v -> vertx.undeploy(registries.get(ownerBefore.get("session-0"))))
+        .compose(v -> sessions(vertx, ownerAfter))
+        .onComplete(context.succeeding(v -> context.verify(() -> {
+          String gone = ownerBefore.get("session-0");
+          assertThat(ownerAfter).doesNotContainValue(gone).doesNotContainValue(null);
+          ownerBefore.forEach((session, owner) -> {
+            if (!owner.equals(gone)) {
+              assertThat(ownerAfter.get(session)).isEqualTo(owner);
+            }
+          });
+          context.completeNow();
+        })));
+  }
+
+  /**
+   * Calls 'session' with ten keys one after the other, recording the owner of each key.
+   */
+  private Future<Void> sessions(Vertx vertx, Map<String, String> owners) {
+    Future<Void> done = Future.succeededFuture();
+    for (int i = 0; i < 10; i++) {
+      String session = "session-" + i;
+      done = done.compose(v -> vertx.eventBus()
+          .<String>request(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, request(1, session))
+          .map(resp -> {
+            owners.put(session, new JsonObject(resp.body()).getString("result"));
+            return null;
+          }));
+    }
+    return done;
+  }
+
+  private JsonRpcMethod sessionMethod(String owner) {
+    return new JsonRpcMethod() {
+      @Override
+      public String name() {
+        return "session";
+      }
+
+      @Override
+      public JsonRpcShardKey shardKey() {
+        return JsonRpcShardKey.param(0, "session");
+      }
+
+      @Override
+      public JsonRpcResult process(List<?> params) {
+        return new JsonRpcResult(owner);
+      }
+    };
+  }
+
+  private String request(int id, String session) {
+    return "{\"jsonrpc\": \"2.0\", \"id\": " + id + ", \"method\": \"session\", \"params\": [\""
+        + session + "\"]}";
+  }
+}
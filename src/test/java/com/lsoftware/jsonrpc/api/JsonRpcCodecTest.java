@@ -0,0 +1,70 @@
+package com.lsoftware.jsonrpc.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.lsoftware.jsonrpc.api.error.InvalidParamsJsonRpcError;
+import com.lsoftware.jsonrpc.api.error.JsonRpcErrorResponses;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class JsonRpcCodecTest {
+
+  private static final String REQUEST =
+      "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"subtract\","
+      + " \"params\": {\"subtrahend\": 1, \"minuend\": 5}}";
+
+  @Test
+  public void requestsShouldDecodeLikeVertx() {
+    JsonRpcRequest expected = Json.decodeValue(REQUEST, JsonRpcRequest.class);
+
+    assertThat(JsonRpcCodec.decodeRequest(REQUEST)).usingRecursiveComparison().isEqualTo(expected);
+    assertThat(JsonRpcCodec.decodeRequest(new JsonObject(REQUEST)))
+        .usingRecursiveComparison().isEqualTo(expected);
+    assertThat(JsonRpcCodec.encodeRequest(expected)).isEqualTo(Json.encode(expected));
+  }
+
+  @Test
+  public void responsesShouldEncodeLikeVertx() {
+    List<JsonRpcResponse> responses = Arrays.asList(
+        new JsonRpcSuccessResponse("1", new JsonObject().put("a", 1)),
+        JsonRpcErrorResponses.invalidParams("2", "expected int"),
+        JsonRpcErrorResponses.invalidRequest());
+
+    for (JsonRpcResponse response : responses) {
+      assertThat(JsonRpcCodec.encodeResponse(response)).isEqualTo(Json.encode(response));
+    }
+    assertThat(JsonRpcCodec.encodeResponses(responses)).isEqualTo(Json.encode(responses));
+  }
+
+  @Test
+  public void resultsShouldRoundTrip() {
+    List<JsonRpcResult> results = Arrays.asList(new JsonRpcResult(5),
+        new JsonRpcResult(new InvalidParamsJsonRpcError("expected int")));
+
+    String encoded = JsonRpcCodec.encodeResults(results);
+
+    assertThat(encoded).isEqualTo(Json.encode(results));
+    JsonRpcResult[] decoded = JsonRpcCodec.decodeResults(encoded);
+    assertThat(decoded[0].getResult()).isEqualTo(5);
+    assertThat(decoded[1].getError().getCode()).isEqualTo(-32602);
+  }
+
+  @Test
+  public void malformedJsonShouldThrowDecodeException() {
+    assertThatThrownBy(() -> JsonRpcCodec.decodeRequest("{\"jsonrpc\": "))
+        .isInstanceOf(DecodeException.class);
+  }
+
+  @Test
+  public void requestIdShouldBeDecodedFromSingleCallsOnly() {
+    assertThat(JsonRpcCodec.decodeRequestId(
+        "{\"jsonrpc\": \"2.0\", \"id\": \"7\", \"method\": \"add\"}")).isEqualTo("7");
+    assertThat(JsonRpcCodec.decodeRequestId("[{\"jsonrpc\": \"2.0\", \"id\": \"7\"}]")).isNull();
+    assertThat(JsonRpcCodec.decodeRequestId("{\"jsonrpc\": ")).isNull();
+  }
+}
@@ -0,0 +1,128 @@
+package com.lsoftware.jsonrpc.methods;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.api.JsonRpcBinding;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcParam;
+import com.lsoftware.jsonrpc.api.JsonRpcRequest;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import io.vertx.core.json.Json;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MathMethodsGroupTest {
+
+  private Map<String, JsonRpcMethod> methods;
+
+  @BeforeEach
+  public void before() {
+    methods = bind(new MathMethodsGroup());
+  }
+
+  @Test
+  public void groupShouldExposeAnnotatedMethods() {
+    assertThat(methods).containsOnlyKeys("add", "subtract");
+  }
+
+  @Test
+  public void positionalParamsShouldBindByPosition() {
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"subtract\","
+        + " \"params\": [5, 1]}");
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getResult()).isEqualTo(4);
+  }
+
+  @Test
+  public void namedParamsShouldBindByName() {
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"subtract\","
+        + " \"params\": {\"subtrahend\": 1, \"minuend\": 5}}");
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getResult()).isEqualTo(4);
+  }
+
+  @Test
+  public void mismatchedParamTypeShouldReturnInvalidParams() {
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"add\","
+        + " \"params\": [\"2\", 3]}");
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getError().getCode()).isEqualTo(-32602);
+  }
+
+  @Test
+  public void missingPrimitiveParamShouldReturnInvalidParams() {
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"add\","
+        + " \"params\": {\"a\": 2}}");
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getError().getCode()).isEqualTo(-32602);
+  }
+
+  @Test
+  public void missingNamedParamShouldReturnInvalidParams() {
+    methods.putAll(bind(new ScaleMethodsGroup()));
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"scale\","
+        + " \"params\": {\"factor\": 2}}");
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getError().getCode()).isEqualTo(-32602);
+  }
+
+  @Test
+  public void missingOptionalNamedParamShouldBeBoundAsNull() {
+    methods.putAll(bind(new ScaleMethodsGroup()));
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"scale\","
+        + " \"params\": {\"value\": 3}}");
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.getResult()).isEqualTo(3);
+  }
+
+  @Test
+  public void unknownNamedParamShouldReturnInvalidParams() {
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"add\","
+        + " \"params\": {\"a\": 2, \"b\": 3, \"c\": 4}}");
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getError().getCode()).isEqualTo(-32602);
+  }
+
+  @Test
+  public void tooManyParamsShouldReturnInvalidParams() {
+    JsonRpcResult result = process("{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"add\","
+        + " \"params\": [1, 2, 3]}");
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getError().getCode()).isEqualTo(-32602);
+  }
+
+  private JsonRpcResult process(String json) {
+    JsonRpcRequest request = Json.decodeValue(json, JsonRpcRequest.class);
+    return methods.get(request.getMethod()).process(request);
+  }
+
+  private static Map<String, JsonRpcMethod> bind(JsonRpcMethodGroup group) {
+    return group.methods().stream()
+        .collect(Collectors.toMap(JsonRpcMethod::name, Function.identity()));
+  }
+
+  private static class ScaleMethodsGroup extends AnnotatedJsonRpcMethodGroup {
+
+    @Override
+    public String name() {
+      return "scale";
+    }
+
+    @JsonRpcBinding("scale")
+    public int scale(@JsonRpcParam("value") Integer value,
+        @JsonRpcParam(value = "factor", optional = true) Integer factor) {
+      return factor == null ? value : value * factor;
+    }
+  }
+}
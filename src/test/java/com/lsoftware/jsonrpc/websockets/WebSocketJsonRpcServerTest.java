@@ -0,0 +1,318 @@
+package com.lsoftware.jsonrpc.websockets;
+
+import static com.lsoftware.jsonrpc.JsonRpcMessageProcessor.JSONRPC_PROCESSOR_EVENTBUS_ADDRESS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.lsoftware.jsonrpc.JsonRpcMessageProcessor;
+import com.lsoftware.jsonrpc.JsonRpcMethodRegistry;
+import com.lsoftware.jsonrpc.api.JsonRpcMethod;
+import com.lsoftware.jsonrpc.api.JsonRpcResult;
+import com.lsoftware.jsonrpc.api.JsonRpcTopics;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class WebSocketJsonRpcServerTest {
+
+  @BeforeEach
+  public void before(Vertx vertx, VertxTestContext context) {
+    JsonRpcMethodRegistry registry = new JsonRpcMethodRegistry();
+    registry.addMethod(new JsonRpcMethod() {
+      @Override
+      public String name() {
+        return "repeat";
+      }
+
+      @Override
+      public JsonRpcResult process(List<?> params) {
+        return new JsonRpcResult(
+            String.join("", Collections.nCopies((Integer) params.get(1), (String) params.get(0))));
+      }
+    });
+    CompositeFuture.all(
+        vertx.deployVerticle(new JsonRpcMessageProcessor()),
+        vertx.deployVerticle(registry))
+        .onComplete(context.succeedingThenComplete());
+  }
+
+  private Future<WebSocket> connect(Vertx vertx) {
+    return connect(vertx, new WebSocketJsonRpcServer());
+  }
+
+  private Future<WebSocket> connect(Vertx vertx, WebSocketSubscriptionOptions options) {
+    return connect(vertx, new WebSocketJsonRpcServer(options));
+  }
+
+  /**
+   * Deploys the server and connects to it. Each test deploys its own, as undeploying a server and
+   * binding another one to the same port can race.
+   */
+  private Future<WebSocket> connect(Vertx vertx, WebSocketJsonRpcServer server) {
+    return vertx.deployVerticle(server)
+        .compose(id -> vertx.createHttpClient().webSocket(8081, "localhost", "/"));
+  }
+
+  private static String subscribe(Object id, String topic) {
+    return "{\"jsonrpc\": \"2.0\", \"id\": " + id + ", \"method\": \"rpc.subscribe\","
+        + " \"params\": [\"" + topic + "\"]}";
+  }
+
+  /**
+   * Publishes more notifications than the socket buffers and a queue of ten can hold.
+   */
+  private static void flood(Vertx vertx, int events) {
+    final String padding = String.join("", Collections.nCopies(16 * 1024, "x"));
+    for (int seq = 0; seq < events; seq++) {
+      JsonRpcTopics.publish(vertx.eventBus(), "ticks",
+          new JsonObject().put("seq", seq).put("padding", padding));
+    }
+  }
+
+  @Test
+  public void pipelinedCallsShouldAllBeAnswered(Vertx vertx, VertxTestContext context) {
+    pipelineCalls(connect(vertx), context);
+  }
+
+  @Test
+  public void pipelinedCallsShouldAllBeAnsweredWithCoalescedWrites(Vertx vertx,
+      VertxTestContext context) {
+    pipelineCalls(connect(vertx, new WebSocketJsonRpcServer(new WebSocketSubscriptionOptions(),
+        new WebSocketWriteOptions().setCoalesceWrites(true))), context);
+  }
+
+  private void pipelineCalls(Future<WebSocket> connected, VertxTestContext context) {
+    final int calls = 200;
+    // the first call and its response are larger than a frame: the client fragments the call, and
+    // the response isn't coalesced with the others
+    final int largeLength = 100_000;
+    Set<Integer> answered = new HashSet<>();
+
+    connected.onComplete(context.succeeding(websocket -> {
+          websocket.textMessageHandler(text -> context.verify(() -> {
+            JsonObject response = new JsonObject(text);
+            int id = Integer.parseInt(response.getString("id"));
+            if (id == 0) {
+              assertThat(response.getString("result")).hasSize(largeLength);
+            } else {
+              assertThat(response.getString("result")).isEqualTo("call" + id);
+            }
+            answered.add(id);
+            if (answered.size() == calls) {
+              context.completeNow();
+            }
+          }));
+          for (int id = 0; id < calls; id++) {
+            websocket.writeTextMessage("{\"jsonrpc\": \"2.0\", \"id\": " + id
+                + ", \"method\": \"repeat\", \"params\": "
+                + (id == 0 ? "[\"" + String.join("", Collections.nCopies(largeLength, "x"))
+                + "\", 1]" : "[\"call" + id + "\", 1]") + "}");
+          }
+        }));
+  }
+
+  @Test
+  public void failedCallsShouldBeAnsweredWithAnError(Vertx vertx, VertxTestContext context) {
+    // point-to-point messages alternate between the processor and this consumer
+    vertx.eventBus().consumer(JSONRPC_PROCESSOR_EVENTBUS_ADDRESS, msg -> msg.fail(-1, "failed"));
+    Map<String, JsonObject> responses = new HashMap<>();
+
+    connect(vertx)
+        .onComplete(context.succeeding(websocket -> {
+          websocket.textMessageHandler(text -> context.verify(() -> {
+            JsonObject response = new JsonObject(text);
+            responses.put(response.getString("id"), response);
+            if (responses.size() == 2) {
+              assertThat(responses.values()).filteredOn(r -> r.containsKey("result")).hasSize(1);
+              assertThat(responses.values()).filteredOn(r -> r.containsKey("error"))
+                  .singleElement()
+                  .satisfies(r -> assertThat(r.getJsonObject("error").getInteger("code"))
+                      .isEqualTo(-32603));
+              context.completeNow();
+            }
+          }));
+          for (int id = 1; id <= 2; id++) {
+            websocket.writeTextMessage("{\"jsonrpc\": \"2.0\", \"id\": " + id
+                + ", \"method\": \"repeat\", \"params\": [\"x\", 1]}");
+          }
+        }));
+  }
+
+  @Test
+  public void subscribersShouldReceiveNotifications(Vertx vertx, VertxTestContext context) {
+    List<JsonObject> messages = new ArrayList<>();
+
+    connect(vertx)
+        .onComplete(context.succeeding(websocket -> {
+          websocket.textMessageHandler(text -> context.verify(() -> {
+            messages.add(new JsonObject(text));
+            onMessage(vertx, websocket, messages, context);
+          }));
+          websocket.writeTextMessage(subscribe(1, "ticks"));
+        }));
+  }
+
+  private void onMessage(Vertx vertx, WebSocket websocket, List<JsonObject> messages,
+      VertxTestContext context) {
+    final String subscription = messages.get(0).getString("result");
+    switch (messages.size()) {
+      case 1:
+        assertThat(subscription).isNotEmpty();
+        JsonRpcTopics.publish(vertx.eventBus(), "ticks", new JsonObject().put("tick", 1));
+        break;
+      case 2:
+        JsonObject notification = messages.get(1);
+        assertThat(notification.getString("method")).isEqualTo("subscription");
+        assertThat(notification.getJsonObject("params").getString("subscription"))
+            .isEqualTo(subscription);
+        assertThat(notification.getJsonObject("params").getJsonObject("result").getInteger("tick"))
+            .isEqualTo(1);
+        websocket.writeTextMessage("{\"jsonrpc\": \"2.0\", \"id\": 2,"
+            + " \"method\": \"rpc.unsubscribe\", \"params\": [\"" + subscription + "\"]}");
+        break;
+      default:
+        assertThat(messages.get(2).getBoolean("result")).isTrue();
+        context.completeNow();
+    }
+  }
+
+  @Test
+  public void everySubscriberShouldReceiveTheNotification(Vertx vertx, VertxTestContext context) {
+    final int subscribers = 3;
+    final Checkpoint subscribed = context.checkpoint(subscribers);
+    final Checkpoint notified = context.checkpoint(subscribers);
+    final AtomicInteger pending = new AtomicInteger(subscribers);
+
+    vertx.deployVerticle(new WebSocketJsonRpcServer()).onComplete(context.succeeding(id -> {
+      for (int i = 0; i < subscribers; i++) {
+        vertx.createHttpClient().webSocket(8081, "localhost", "/")
+            .onComplete(context.succeeding(websocket -> {
+              websocket.textMessageHandler(text -> context.verify(() -> {
+                JsonObject message = new JsonObject(text);
+                if (message.containsKey("id")) {
+                  subscribed.flag();
+                  if (pending.decrementAndGet() == 0) {
+                    JsonRpcTopics.publish(vertx.eventBus(), "ticks",
+                        new JsonObject().put("tick", 1));
+                  }
+                  return;
+                }
+                assertThat(message.getJsonObject("params").getJsonObject("result")
+                    .getInteger("tick")).isEqualTo(1);
+                notified.flag();
+              }));
+              websocket.writeTextMessage(subscribe(1, "ticks"));
+            }));
+      }
+    }));
+  }
+
+  @Test
+  public void subscribeWithoutTopicShouldReturnInvalidParams(Vertx vertx,
+      VertxTestContext context) {
+    connect(vertx)
+        .onComplete(context.succeeding(websocket -> {
+          websocket.textMessageHandler(text -> context.verify(() -> {
+            assertThat(new JsonObject(text).getJsonObject("error").getInteger("code"))
+                .isEqualTo(-32602);
+            context.completeNow();
+          }));
+          websocket.writeTextMessage(
+              "{\"jsonrpc\": \"2.0\", \"id\": 1, \"method\": \"rpc.subscribe\"}");
+        }));
+  }
+
+  @Test
+  public void subscriptionsShouldBeLimited(Vertx vertx, VertxTestContext context) {
+    Map<String, JsonObject> responses = new HashMap<>();
+
+    connect(vertx, new WebSocketSubscriptionOptions().setMaxSubscriptionsPerConnection(1)
+        .addTopic("ticks").addTopic("tocks"))
+        .onComplete(context.succeeding(websocket -> {
+          websocket.textMessageHandler(text -> context.verify(() -> {
+            JsonObject response = new JsonObject(text);
+            responses.put(response.getString("id"), response);
+            if (responses.size() == 4) {
+              assertThat(responses.get("1").getString("result")).isNotEmpty();
+              // subscribing again to the same topic doesn't count against the limit
+              assertThat(responses.get("2").getString("result"))
+                  .isEqualTo(responses.get("1").getString("result"));
+              assertThat(responses.get("3").getJsonObject("error").getInteger("code"))
+                  .isEqualTo(-32005);
+              assertThat(responses.get("4").getJsonObject("error").getInteger("code"))
+                  .isEqualTo(-32602);
+              context.completeNow();
+            }
+          }));
+          websocket.writeTextMessage(subscribe(1, "ticks"));
+          websocket.writeTextMessage(subscribe(2, "ticks"));
+          websocket.writeTextMessage(subscribe(3, "tocks"));
+          websocket.writeTextMessage(subscribe(4, "unknown"));
+        }));
+  }
+
+  @Test
+  public void slowConsumersShouldLoseTheOldestNotifications(Vertx vertx,
+      VertxTestContext context) {
+    final int events = 1000;
+    List<Integer> received = new ArrayList<>();
+
+    connect(vertx, new WebSocketSubscriptionOptions().setMaxQueuedNotifications(10))
+        .onComplete(context.succeeding(websocket -> {
+          websocket.textMessageHandler(text -> context.verify(() -> {
+            JsonObject message = new JsonObject(text);
+            if (message.containsKey("id")) {
+              // subscribed: stop reading until the server has queued all it could
+              websocket.pause();
+              flood(vertx, events);
+              vertx.setTimer(1000, t -> websocket.resume());
+              return;
+            }
+            final int seq = message.getJsonObject("params").getJsonObject("result")
+                .getInteger("seq");
+            received.add(seq);
+            if (seq == events - 1) {
+              assertThat(received).hasSizeLessThan(events).isSorted();
+              context.completeNow();
+            }
+          }));
+          websocket.writeTextMessage(subscribe(1, "ticks"));
+        }));
+  }
+
+  @Test
+  public void slowConsumersShouldBeDisconnected(Vertx vertx, VertxTestContext context) {
+    connect(vertx, new WebSocketSubscriptionOptions().setMaxQueuedNotifications(10)
+        .setSlowConsumerPolicy(WebSocketSubscriptionOptions.SlowConsumerPolicy.DISCONNECT))
+        .onComplete(context.succeeding(websocket -> {
+          websocket.closeHandler(v -> context.verify(() -> {
+            assertThat(websocket.closeStatusCode()).isEqualTo(WebSocketConnection.TRY_AGAIN_LATER);
+            context.completeNow();
+          }));
+          websocket.textMessageHandler(text -> {
+            if (new JsonObject(text).containsKey("id")) {
+              websocket.pause();
+              flood(vertx, 1000);
+              vertx.setTimer(1000, t -> websocket.resume());
+            }
+          });
+          websocket.writeTextMessage(subscribe(1, "ticks"));
+        }));
+  }
+}